@@ -8,9 +8,9 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.LinkedList;
 import java.util.PriorityQueue;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
 
 class Simulator {
         /** Framework for discrete event simulation.
@@ -81,7 +81,7 @@ class SyntaxCheck {
 		String s();
 	}
 
-	static void lineEnd( Scanner sc, ByName c ) {
+	static void lineEnd( Tokenizer sc, ByName c ) {
 		/** Check for end of line on sc,
 		 *  Use c to provide context in any error message
 		 */
@@ -108,7 +108,7 @@ class Wire {
 	private Gate  driver;	// what gate drives this wire
 
 	// initializer -- note:  No outside code uses the default initializer!
-	public static Wire scan( Scanner sc ) {
+	public static Wire scan( Tokenizer sc ) {
 		/** Initialize a wire by scanning its description from sc.
 		 *  Returns null if the description contains errors.
 		 */
@@ -212,7 +212,7 @@ abstract class Gate {
 	float delay;	// delay of this gate
 	
 	// initializer -- note:  called only by implementing classes
-	public void scan( Scanner sc, List <String> inputs ) {
+	public void scan( Tokenizer sc, List <String> inputs ) {
 		/** Initialize a gate scanning its description from sc.
 		 *  Returns name = null if the description contains errors.
 		 */
@@ -323,7 +323,7 @@ class AndGate extends Gate {
 	private AndGate() {} // prevent outsiders from using the initializer
 	private static List <String> inputs = Arrays.asList( "in1", "in2" );
 
-	public static Gate scan( Scanner sc ) {
+	public static Gate scan( Tokenizer sc ) {
 		AndGate g = new AndGate();
 		g.scan( sc, inputs );
 		if (g.name == null) g = null;
@@ -360,7 +360,7 @@ class OrGate extends Gate {
 	private OrGate() {} // prevent outsiders from using the initializer
 	private static List <String> inputs = Arrays.asList( "in1", "in2" );
 
-	public static Gate scan( Scanner sc ) {
+	public static Gate scan( Tokenizer sc ) {
 		OrGate g = new OrGate();
 		g.scan( sc, inputs );
 		if (g.name == null) g = null;
@@ -397,7 +397,7 @@ class NotGate extends Gate {
 	private NotGate() {} // prevent outsiders from using the initializer
 	private static List <String> inputs = Arrays.asList( "in" );
 
-	public static Gate scan( Scanner sc ) {
+	public static Gate scan( Tokenizer sc ) {
 		NotGate g = new NotGate();
 		g.scan( sc, inputs );
 
@@ -455,7 +455,7 @@ public class LogicCircuit {
 		return null;
 	}
 
-	private static void readCircuit( Scanner sc ) {
+	private static void readCircuit( Tokenizer sc ) {
 		/** Read a logic circuit, scanning its description from sc.
 		 */
 
@@ -527,13 +527,14 @@ public class LogicCircuit {
 		if (args.length > 1) {
 			Errors.fatal( "Extra command-line arguments" );
 		}
-		try {
-		        readCircuit( new Scanner( new File( args[0] )));
-		        checkCircuit();
-			writeCircuit();
-			Simulator.run();
-		} catch (FileNotFoundException e) {
+		// the file is closed as soon as it is read
+		try (FileChannel in = FileChannel.open( Paths.get( args[0] ) )) {
+			readCircuit( new Tokenizer( in ) );
+		} catch (IOException e) {
 			Errors.fatal( "Can't open file '" + args[0] + "'" );
 		}
+		checkCircuit();
+		writeCircuit();
+		Simulator.run();
         }
 }
@@ -9,7 +9,6 @@
 import java.util.Arrays;
 import java.util.List;
 import java.util.LinkedList;
-import java.util.Scanner;
 
 class Output extends Gate {
 	/** Output gates display their inputs on the output display once
@@ -95,9 +94,9 @@ class Output extends Gate {
 		}*/
 	}
 
-	public static Gate scan( Scanner sc ) {
+	public static Gate scan( Tokenizer sc ) {
 		/** This is the public initializer for output gates,
-		 *  it reads the gate description using the given scanner
+		 *  it reads the gate description using the given tokenizer
 		 *  and returns the handle for the newly initialized gate.
 		 */
 		// just once, fire up the initial event
@@ -0,0 +1,428 @@
+// Tokenizer.java
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/** Fast reading of whitespace separated tokens, in place of a Scanner
+ *  @version: October 16, 2026
+ *  @see SyntaxCheck
+ *  @see LogicCircuit
+ *  @see java.util.Scanner
+ *
+ *  The methods are named after those of {@link java.util.Scanner} and
+ *  behave the same way on the input this program reads, but the input
+ *  is read in large blocks from a {@link ReadableByteChannel} and each
+ *  token is recognized by looking at its bytes directly, with no regular
+ *  expressions.  A token only becomes a {@code String} the first time
+ *  it is seen: every token returned by {@code next} or {@code nextName}
+ *  is interned in a table kept by the tokenizer, so repeated keywords
+ *  and names cost no allocation, and numbers are converted straight from
+ *  the bytes.  Looking ahead with a {@code hasNext} method consumes
+ *  nothing, and the token found is remembered for the call that takes it.
+ *
+ *  The differences from a {@code Scanner}: {@code hasNext(String)}
+ *  compares the next token with a word, not with a regular expression;
+ *  numbers may not contain grouping separators such as {@code 1,000};
+ *  only ASCII whitespace separates tokens and only {@code \n},
+ *  {@code \r} and {@code \r\n} end lines; and {@code nextLine} at the
+ *  end of the input returns an empty line instead of throwing.  Bytes
+ *  that are not ASCII are read as UTF-8.
+ */
+class Tokenizer {
+
+	private final ReadableByteChannel in;
+	private byte[] bytes = new byte[1 << 16];
+	private int pos = 0;            // the next byte not yet consumed
+	private int limit = 0;          // the end of the bytes read so far
+	private boolean eof = false;
+
+	// the next token, bytes start up to end, found when pos was tokenPos
+	private int tokenPos = -1;
+	private int start;
+	private int end;
+
+	// the value of the next token, set by parseInt and parseFloat
+	private int intValue;
+	private float floatValue;
+
+	// interned tokens, by open addressing on the hash of their bytes
+	private String[] strings = new String[1024];
+	private byte[][] spellings = new byte[1024][];
+	private int[] hashes = new int[1024];
+	private int interned = 0;
+
+	// exact powers of ten, see parseFloat
+	private static final float[] POWERS = {
+		1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+	};
+
+	/** Read tokens from a channel
+	 *  @param in the channel, read until it reports the end
+	 */
+	Tokenizer( ReadableByteChannel in ) {
+		this.in = in;
+	}
+
+	/** Read tokens from a string
+	 *  @param text the text
+	 */
+	Tokenizer( String text ) {
+		this( Channels.newChannel(
+			new ByteArrayInputStream( text.getBytes( StandardCharsets.UTF_8 ) )
+		) );
+	}
+
+	/** Is there another token in the input?
+	 */
+	boolean hasNext() {
+		return peek();
+	}
+
+	/** Is the next token the given word?
+	 *  @param word the word, in ASCII
+	 */
+	boolean hasNext( String word ) {
+		if (!peek() || (end - start != word.length())) return false;
+		for (int i = 0; i < word.length(); i++) {
+			if (bytes[start + i] != word.charAt( i )) return false;
+		}
+		return true;
+	}
+
+	/** Get the next token
+	 *  @throws NoSuchElementException if there is none
+	 */
+	String next() {
+		if (!peek()) throw new NoSuchElementException();
+		String s = intern( start, end );
+		pos = end;
+		return s;
+	}
+
+	/** Is the next token a name, a letter followed by letters, digits
+	 *  or underscores, as matched by {@code [A-Za-z]\w*}?
+	 */
+	boolean hasNextName() {
+		if (!peek() || !isLetter( bytes[start] )) return false;
+		for (int i = start + 1; i < end; i++) {
+			byte b = bytes[i];
+			if (!isLetter( b ) && !isDigit( b ) && (b != '_')) return false;
+		}
+		return true;
+	}
+
+	/** Get the next token, which must be a name
+	 *  @throws InputMismatchException if it is not
+	 */
+	String nextName() {
+		if (!hasNextName()) throw new InputMismatchException();
+		return next();
+	}
+
+	/** Is the next token an int?
+	 */
+	boolean hasNextInt() {
+		return parseInt();
+	}
+
+	/** Get the next token, which must be an int
+	 *  @throws InputMismatchException if it is not
+	 */
+	int nextInt() {
+		if (!parseInt()) throw new InputMismatchException();
+		pos = end;
+		return intValue;
+	}
+
+	/** Is the next token a float?
+	 */
+	boolean hasNextFloat() {
+		return parseFloat();
+	}
+
+	/** Get the next token, which must be a float
+	 *  @throws InputMismatchException if it is not
+	 */
+	float nextFloat() {
+		if (!parseFloat()) throw new InputMismatchException();
+		pos = end;
+		return floatValue;
+	}
+
+	/** Get the rest of the current line, and skip the line end
+	 *  @return the text up to the line end, which may be empty
+	 */
+	String nextLine() {
+		int i = pos;
+		for (;;) {
+			while ((i < limit) && (bytes[i] != '\n') && (bytes[i] != '\r')) {
+				i = i + 1;
+			}
+			if (i < limit) break;
+			int shift = pos;
+			if (!fill()) break;
+			i = i - shift;
+		}
+		String line = new String( bytes, pos, i - pos, StandardCharsets.UTF_8 );
+		pos = i;
+		if ((pos < limit) || fill()) {
+			if (bytes[pos] == '\r') {
+				pos = pos + 1;
+				if (((pos < limit) || fill()) && (bytes[pos] == '\n')) {
+					pos = pos + 1;
+				}
+			} else {
+				pos = pos + 1;
+			}
+		}
+		return line;
+	}
+
+	/** Find the next token, bytes start up to end, without consuming it
+	 *  @return false if there is none
+	 */
+	private boolean peek() {
+		if (tokenPos == pos) return start < end;
+		tokenPos = pos;
+		start = pos;
+		for (;;) {
+			while ((start < limit) && isSpace( bytes[start] )) {
+				start = start + 1;
+			}
+			if (start < limit) break;
+			if (!fill()) {
+				end = start;
+				return false;
+			}
+		}
+		end = start;
+		for (;;) {
+			while ((end < limit) && !isSpace( bytes[end] )) {
+				end = end + 1;
+			}
+			if ((end < limit) || !fill()) break;
+		}
+		return true;
+	}
+
+	/** Read more input, moving the unconsumed bytes to the front first
+	 *  Every position kept in a field is moved with them.
+	 *  @return false at the end of the input
+	 */
+	private boolean fill() {
+		if (eof) return false;
+		if (pos > 0) {
+			System.arraycopy( bytes, pos, bytes, 0, limit - pos );
+			limit = limit - pos;
+			start = start - pos;
+			end = end - pos;
+			tokenPos = tokenPos - pos;
+			pos = 0;
+		}
+		if (limit == bytes.length) {
+			bytes = Arrays.copyOf( bytes, bytes.length * 2 );
+		}
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap( bytes, limit, bytes.length - limit );
+			int n = 0;
+			while (n == 0) {
+				n = in.read( buffer );
+			}
+			if (n < 0) {
+				eof = true;
+				return false;
+			}
+			limit = limit + n;
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException( e );
+		}
+	}
+
+	/** Parse the next token as an int, into intValue
+	 *  @return false if it is not one
+	 */
+	private boolean parseInt() {
+		if (!peek()) return false;
+		int i = start;
+		boolean negative = false;
+		if ((bytes[i] == '+') || (bytes[i] == '-')) {
+			negative = (bytes[i] == '-');
+			i = i + 1;
+		}
+		if ((i == end) || (end - i > 10)) return false;
+		long v = 0;
+		for (; i < end; i++) {
+			if (!isDigit( bytes[i] )) return false;
+			v = v * 10 + (bytes[i] - '0');
+		}
+		if (negative) v = -v;
+		if ((v < Integer.MIN_VALUE) || (v > Integer.MAX_VALUE)) return false;
+		intValue = (int)v;
+		return true;
+	}
+
+	/** Parse the next token as a float, into floatValue
+	 *  A decimal number with at most 8 digits after leading zeros and a
+	 *  small exponent is converted with a single float multiplication or
+	 *  division of two exactly represented numbers, so it is correctly
+	 *  rounded, as by {@code Float.parseFloat}; any other number is
+	 *  given to {@code Float.parseFloat}.
+	 *  @return false if it is not one
+	 */
+	private boolean parseFloat() {
+		if (!peek()) return false;
+		int i = start;
+		boolean negative = false;
+		if ((bytes[i] == '+') || (bytes[i] == '-')) {
+			negative = (bytes[i] == '-');
+			i = i + 1;
+		}
+		long mantissa = 0;
+		int exponent = 0;
+		int digits = 0;         // digits in the token
+		int kept = 0;           // digits in mantissa, after leading zeros
+		boolean fast = true;
+		for (; (i < end) && isDigit( bytes[i] ); i++) {
+			digits = digits + 1;
+			if (kept < 9) {
+				mantissa = mantissa * 10 + (bytes[i] - '0');
+				if (mantissa > 0) kept = kept + 1;
+			} else {
+				fast = false;
+			}
+		}
+		if ((i < end) && (bytes[i] == '.')) {
+			for (i = i + 1; (i < end) && isDigit( bytes[i] ); i++) {
+				digits = digits + 1;
+				if (kept < 9) {
+					mantissa = mantissa * 10 + (bytes[i] - '0');
+					if (mantissa > 0) kept = kept + 1;
+					exponent = exponent - 1;
+				} else {
+					fast = false;
+				}
+			}
+		}
+		if (digits == 0) return parseSpecial( i );
+		if ((i < end) && ((bytes[i] == 'e') || (bytes[i] == 'E'))) {
+			i = i + 1;
+			boolean minus = false;
+			if ((i < end) && ((bytes[i] == '+') || (bytes[i] == '-'))) {
+				minus = (bytes[i] == '-');
+				i = i + 1;
+			}
+			if (i == end) return false;
+			int e = 0;
+			for (; i < end; i++) {
+				if (!isDigit( bytes[i] )) return false;
+				if (e < 100000) e = e * 10 + (bytes[i] - '0');
+			}
+			exponent = exponent + (minus ? -e : e);
+		}
+		if (i != end) return false;
+
+		if (fast && (mantissa <= (1 << 24)) && (exponent >= -10) && (exponent <= 10)) {
+			float f = (float)mantissa;
+			f = (exponent >= 0) ? f * POWERS[exponent] : f / POWERS[-exponent];
+			floatValue = negative ? -f : f;
+		} else {
+			floatValue = Float.parseFloat(
+				new String( bytes, start, end - start, StandardCharsets.ISO_8859_1 )
+			);
+		}
+		return true;
+	}
+
+	/** Parse a token with no digits: NaN or Infinity, maybe signed
+	 *  @param i where the token continues after any sign
+	 *  @return false if it is neither
+	 */
+	private boolean parseSpecial( int i ) {
+		String rest = new String( bytes, i, end - i, StandardCharsets.ISO_8859_1 );
+		if (!"NaN".equals( rest ) && !"Infinity".equals( rest )) return false;
+		floatValue = Float.parseFloat(
+			new String( bytes, start, end - start, StandardCharsets.ISO_8859_1 )
+		);
+		return true;
+	}
+
+	/** The interned string spelled by bytes from up to to
+	 */
+	private String intern( int from, int to ) {
+		int h = 0;
+		for (int i = from; i < to; i++) {
+			h = 31 * h + bytes[i];
+		}
+		int mask = strings.length - 1;
+		int slot = (h ^ (h >>> 16)) & mask;
+		while (strings[slot] != null) {
+			if ((hashes[slot] == h) && same( spellings[slot], from, to )) {
+				return strings[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		String s = new String( bytes, from, to - from, StandardCharsets.UTF_8 );
+		strings[slot] = s;
+		spellings[slot] = Arrays.copyOfRange( bytes, from, to );
+		hashes[slot] = h;
+		interned = interned + 1;
+		if (interned * 2 > strings.length) grow();
+		return s;
+	}
+
+	/** Is spelling the same as bytes from up to to?
+	 */
+	private boolean same( byte[] spelling, int from, int to ) {
+		if (spelling.length != to - from) return false;
+		for (int i = 0; i < spelling.length; i++) {
+			if (spelling[i] != bytes[from + i]) return false;
+		}
+		return true;
+	}
+
+	/** Double the table of interned strings
+	 */
+	private void grow() {
+		String[] oldStrings = strings;
+		byte[][] oldSpellings = spellings;
+		int[] oldHashes = hashes;
+		int size = oldStrings.length * 2;
+		strings = new String[size];
+		spellings = new byte[size][];
+		hashes = new int[size];
+		for (int i = 0; i < oldStrings.length; i++) {
+			if (oldStrings[i] == null) continue;
+			int h = oldHashes[i];
+			int slot = (h ^ (h >>> 16)) & (size - 1);
+			while (strings[slot] != null) {
+				slot = (slot + 1) & (size - 1);
+			}
+			strings[slot] = oldStrings[i];
+			spellings[slot] = oldSpellings[i];
+			hashes[slot] = h;
+		}
+	}
+
+	// classes of bytes; only ASCII whitespace separates tokens
+
+	private static boolean isSpace( byte b ) {
+		return (b == ' ') || ((b >= 9) && (b <= 13)) || ((b >= 28) && (b <= 31));
+	}
+
+	private static boolean isDigit( byte b ) {
+		return (b >= '0') && (b <= '9');
+	}
+
+	private static boolean isLetter( byte b ) {
+		return ((b >= 'a') && (b <= 'z')) || ((b >= 'A') && (b <= 'Z'));
+	}
+}
@@ -0,0 +1,299 @@
+// CalendarQueue.java
+
+/** Calendar queue holding the pending events of the {@link Simulator}
+ *  @version: October 16, 2026
+ *  @see Simulator
+ *
+ *  This is the calendar queue of R. Brown (CACM, October 1988).  Time is
+ *  cut into "days" of {@code width} time units, and the days are hashed
+ *  into a circular array of buckets the way the days of a year are laid
+ *  out on a desk calendar.  Each bucket holds a short list of events,
+ *  sorted by time and linked through {@code Simulator.Event.next}, so
+ *  no extra objects are allocated per event.
+ *
+ *  Enqueue hashes straight to a bucket and dequeue walks forward from
+ *  the bucket of the last event removed, so both take amortized O(1)
+ *  time as long as the day width matches the spacing of pending events.
+ *  The number of buckets doubles or halves as the queue grows or
+ *  shrinks, and the day width is re-estimated from the events at the
+ *  head of the queue each time that happens.  Because the spacing of
+ *  events can drift while the queue size stays put, the queue also
+ *  counts the list links and empty days it steps over, and re-estimates
+ *  the width when that work climbs well above a few steps per operation.
+ *
+ *  Events with equal times come out in the order they were added.  The
+ *  first event of each run of equal times in a bucket points to the
+ *  last, so adding to a run, which is common since all the neurons of a
+ *  network may fire at once, takes one step however long the run is,
+ *  and walking a bucket steps over whole runs.
+ */
+class CalendarQueue {
+
+    // never shrink below this many buckets
+    private static final int MIN_BUCKETS = 16;
+
+    // how many events at the head of the queue to sample when resizing
+    private static final int SAMPLE = 25;
+
+    // average steps per operation that trigger a width re-estimate
+    private static final int MAX_STEPS = 8;
+
+    private Simulator.Event[] buckets = new Simulator.Event[MIN_BUCKETS];
+    private int mask = MIN_BUCKETS - 1;  // buckets.length - 1
+    private double width = 1.0;          // time units per day
+    private int size = 0;                // number of events queued
+
+    // the day currently being examined, counted from time zero;
+    // no queued event has an earlier day than this
+    private long day = 0;
+
+    // operations and steps taken since the width was last estimated
+    private int ops = 0;
+    private long steps = 0;
+
+    /** Is the queue empty?
+     *  @return true if there are no pending events
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** How many events are pending?
+     *  @return the number of events in the queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /** Add an event to the queue
+     *  @param e the event; its time may not be NaN
+     */
+    public void add( Simulator.Event e ) {
+        long d = dayOf( e.time );
+        if (d < day) {
+            // an event earlier than anything examined so far, back up
+            day = d;
+        }
+        insert( e, d );
+        size = size + 1;
+        if (size > 2 * buckets.length) {
+            resize( buckets.length * 2 );
+        } else {
+            checkWidth();
+        }
+    }
+
+    /** Look at the earliest event without removing it
+     *  @return the earliest event, or null if the queue is empty
+     */
+    public Simulator.Event peek() {
+        if (size == 0) return null;
+
+        // walk one year of the calendar looking for an event today
+        long d = day;
+        for (int i = 0; i <= mask; i++) {
+            Simulator.Event head = buckets[(int)(d & mask)];
+            if ((head != null) && (dayOf( head.time ) <= d)) {
+                steps = steps + i;
+                day = d;
+                return head;
+            }
+            d = d + 1;
+        }
+        steps = steps + buckets.length;
+
+        // the queue is sparse relative to the day width, search directly
+        Simulator.Event min = null;
+        for (Simulator.Event head: buckets) {
+            if ((head != null) && ((min == null) || (head.time < min.time))) {
+                min = head;
+            }
+        }
+        day = dayOf( min.time );
+        return min;
+    }
+
+    /** Remove the earliest event from the queue
+     *  @return the earliest event, or null if the queue is empty
+     */
+    public Simulator.Event remove() {
+        Simulator.Event e = peek();
+        if (e == null) return null;
+
+        // peek() left the earliest event at the head of today's bucket
+        unlinkHead( (int)(day & mask) );
+        size = size - 1;
+        if ((size < buckets.length / 2) && (buckets.length > MIN_BUCKETS)) {
+            resize( buckets.length / 2 );
+        } else {
+            checkWidth();
+        }
+        return e;
+    }
+
+    /** Which day of the calendar does time t fall on?
+     */
+    private long dayOf( float t ) {
+        return (long)Math.floor( t / width );
+    }
+
+    /** Take the first event off bucket b, which must not be empty
+     */
+    private void unlinkHead( int b ) {
+        Simulator.Event e = buckets[b];
+        Simulator.Event n = e.next;
+        if ((n != null) && (n.time == e.time)) {
+            // the next event heads what is left of the run
+            n.last = e.last;
+        }
+        buckets[b] = n;
+        e.next = null;
+        e.last = null;
+    }
+
+    /** Link e into its bucket after all events with the same or earlier time
+     */
+    private void insert( Simulator.Event e, long d ) {
+        int b = (int)(d & mask);
+        Simulator.Event p = buckets[b];
+        if ((p == null) || (e.time < p.time)) {
+            e.next = p;
+            e.last = e;
+            buckets[b] = e;
+            return;
+        }
+
+        // p heads a run no later than e; skip whole runs
+        for (;;) {
+            Simulator.Event end = p.last;
+            if ((end.next == null) || (end.next.time > e.time)) {
+                e.next = end.next;
+                end.next = e;
+                if (p.time == e.time) {
+                    p.last = e;
+                } else {
+                    e.last = e;
+                }
+                return;
+            }
+            p = end.next;
+            steps = steps + 1;
+        }
+    }
+
+    /** Link e into its bucket ahead of all events with the same time
+     */
+    private void insertFirst( Simulator.Event e, long d ) {
+        int b = (int)(d & mask);
+        Simulator.Event p = buckets[b];
+        if ((p == null) || (e.time <= p.time)) {
+            e.last = ((p != null) && (p.time == e.time)) ? p.last : e;
+            e.next = p;
+            buckets[b] = e;
+            return;
+        }
+
+        // p heads a run earlier than e; skip whole runs
+        for (;;) {
+            Simulator.Event end = p.last;
+            Simulator.Event n = end.next;
+            if ((n == null) || (n.time >= e.time)) {
+                e.last = ((n != null) && (n.time == e.time)) ? n.last : e;
+                e.next = n;
+                end.next = e;
+                return;
+            }
+            p = n;
+        }
+    }
+
+    /** Count one operation, and re-estimate the width if it has drifted
+     *  This is checked once per year's worth of operations, so the cost
+     *  of a rebuild is spread over at least that many operations.
+     */
+    private void checkWidth() {
+        ops = ops + 1;
+        if (ops < buckets.length) return;
+        if (steps > (long)MAX_STEPS * ops) {
+            // when the head of the queue is all ties, or the width is
+            // already right, a rebuild would only cost and change nothing
+            double w = estimateWidth();
+            if ((w > 0.0) && (w != width)) rebuild( buckets.length, w );
+        }
+        ops = 0;
+        steps = 0;
+    }
+
+    /** Rebuild the calendar with n buckets and a freshly estimated width
+     */
+    private void resize( int n ) {
+        rebuild( n, estimateWidth() );
+    }
+
+    /** Rebuild the calendar with n buckets and day width w, or the same
+     *  width if w is zero
+     */
+    private void rebuild( int n, double w ) {
+        Simulator.Event[] old = buckets;
+        buckets = new Simulator.Event[n];
+        mask = n - 1;
+        if (w > 0.0) width = w;
+
+        // each old bucket is in time order and holds every event of its
+        // times, so moving the buckets front to back keeps equal-time
+        // events in the order they were added
+        day = Long.MAX_VALUE;
+        for (Simulator.Event p: old) {
+            while (p != null) {
+                Simulator.Event e = p;
+                p = p.next;
+                long d = dayOf( e.time );
+                if (d < day) day = d;
+                insert( e, d );
+            }
+        }
+        if (day == Long.MAX_VALUE) day = 0;
+        ops = 0;
+        steps = 0;
+    }
+
+    /** Estimate a good day width from the spacing of the earliest events
+     *  @return the new width, or zero if no estimate could be made
+     *  Following Brown, the average separation of the first few events
+     *  is computed, separations more than twice that average are thrown
+     *  out, and three times the average of the remainder is used.
+     */
+    private double estimateWidth() {
+        int n = Math.min( size, SAMPLE );
+        if (n < 2) return 0.0;
+
+        // pull the sample off the front of the queue and put it back
+        Simulator.Event[] sample = new Simulator.Event[n];
+        float[] times = new float[n];
+        for (int i = 0; i < n; i++) {
+            Simulator.Event e = peek();
+            unlinkHead( (int)(day & mask) );
+            sample[i] = e;
+            times[i] = e.time;
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            // back in front of any unsampled events with the same time
+            insertFirst( sample[i], dayOf( sample[i].time ) );
+        }
+        day = dayOf( times[0] );
+
+        double total = times[n - 1] - times[0];
+        double average = total / (n - 1);
+        double kept = 0.0;
+        int count = 0;
+        for (int i = 1; i < n; i++) {
+            double gap = times[i] - times[i - 1];
+            if (gap <= 2.0 * average) {
+                kept = kept + gap;
+                count = count + 1;
+            }
+        }
+        if ((count == 0) || (kept <= 0.0)) return 0.0;
+        return 3.0 * kept / count;
+    }
+}
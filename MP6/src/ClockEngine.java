@@ -0,0 +1,343 @@
+// ClockEngine.java
+
+import java.util.Arrays;
+
+/** Clock-driven simulation of a compiled network
+ *  @version: October 16, 2026
+ *  @see CompiledNetwork
+ *  @see DeliveryRing
+ *  @see Simulator
+ *
+ *  Instead of taking spikes one at a time from a priority queue, this
+ *  engine advances the whole network in fixed steps of dt time units.
+ *  Every synapse delay is rounded to a whole number of steps once, when
+ *  the engine is set up, and a spike is recorded by appending the edge to
+ *  the slot of a circular buffer for the step at which it arrives, as in
+ *  a {@link DeliveryRing}.  The buffer has a slot for every step up to
+ *  the longest delay, but at most {@code SLOTS}, so it never has to grow,
+ *  and a slot's array is only allocated when a spike first lands in it.
+ *  A spike that arrives further out than the buffer reaches waits in an
+ *  overflow heap, by the time of its step, until the buffer catches up.
+ *  A bit per slot records which slots hold spikes, so the next busy step
+ *  is found 64 steps at a time.  A delay of more than {@code MAX_STEPS}
+ *  steps is refused, since the float time of a step that far ahead need
+ *  not tell it apart from its neighbors.
+ *
+ *  Each step decays every voltage in one loop over the voltage array,
+ *  multiplying by the same factor e^-dt, computed once; steps in which
+ *  nothing arrives are skipped, and the next step makes up for them with
+ *  a power of the factor.  Then the edges in the step's slot are applied
+ *  like the deliveries of a {@code DeliveryRing} tick: secondary synapses
+ *  first, then the input to each destination is summed along the rows of
+ *  the compiled network and added at once, and each destination that
+ *  ends up above its threshold fires.  A neuron is only checked when
+ *  some input reaches it, as in {@code Neuron.kick}.  Zero-delay spikes
+ *  are applied by further passes in the same step.
+ *
+ *  Reports and other {@code Simulator.Event}s are triggered between steps
+ *  at their own times, so the output has the same form as with any other
+ *  engine; the firing times, and so the counts, differ from those of the
+ *  event-driven engines by the rounding to steps.  The engine is chosen
+ *  with {@code engine clock dt}, or for a single run with
+ *  {@code run t clock dt}.
+ */
+class ClockEngine {
+
+    // most slots in the buffer; spikes due later go to the overflow heap
+    private static final int SLOTS = 1 << 16;
+
+    // most steps in one delay; a float has a 24-bit significand
+    static final int MAX_STEPS = 1 << 24;
+
+    private final Simulator simulator;
+    private final CompiledNetwork net;
+    private final float dt;
+    private final float decay;      // e^-dt, the decay over one step
+    private final int[] steps;      // delay of each edge in whole steps
+
+    // slot (k & mask) holds the edges arriving at step k; null until used
+    private final int[][] slots;
+    private final int[] counts;
+    private final int mask;
+    private final long[] busy;      // bit (k & mask) set if slot nonempty
+    private int pending = 0;        // edges in all slots
+
+    // edges arriving more than mask steps ahead, at the times of their steps
+    private final EventHeap overflow = new EventHeap();
+    private int[] spare = new int[8];   // swapped in for a slot being drained
+
+    // the step the voltages are current for
+    private long step = 0;
+
+    // scratch space for summing input per destination neuron
+    private final float[] input;
+    private final boolean[] reached;
+    private final int[] touched;
+
+    /** Set up to simulate a network in steps of dt
+     *  @param simulator the simulator holding the pending events
+     *  @param net the network
+     *  @param dt the time step, positive
+     */
+    ClockEngine( Simulator simulator, CompiledNetwork net, float dt ) {
+        this.simulator = simulator;
+        this.net = net;
+        this.dt = dt;
+        decay = (float)Math.exp( -dt );
+
+        int longest = 0;
+        steps = new int[net.delays.length];
+        for (int e = 0; e < steps.length; e++) {
+            steps[e] = (int)Math.floor( net.delays[e] / dt + 0.5 );
+            if (steps[e] > longest) longest = steps[e];
+        }
+        int size = 64;
+        while ((size <= longest) && (size < SLOTS)) {
+            size = size * 2;
+        }
+        slots = new int[size][];
+        counts = new int[size];
+        mask = size - 1;
+        busy = new long[size / 64];
+
+        input = new float[net.neuronCount];
+        reached = new boolean[net.neuronCount];
+        touched = new int[net.neuronCount];
+    }
+
+    /** Can a network be simulated in steps of dt?
+     *  If not, a warning is given; its longest delay is too many steps.
+     *  @param net the network
+     *  @param dt the time step, positive
+     *  @return true if every delay is at most {@code MAX_STEPS} steps
+     */
+    static boolean fits( CompiledNetwork net, float dt ) {
+        float longest = 0.0f;
+        for (float d: net.delays) longest = Math.max( longest, d );
+        if (longest / dt > MAX_STEPS) {
+            Errors.warning(
+                "clock " + dt + " -- too small for delay " + longest
+                + "; simulating event by event"
+            );
+            return false;
+        }
+        return true;
+    }
+
+    /** Run the simulation until no events of any kind remain
+     *  Primitive events scheduled with the {@link Simulator}, before the
+     *  run or by reports during it, are taken at the step their time
+     *  rounds to, or at the current step if that has passed.  If the
+     *  simulator stops sooner, the last step is the one its stop time
+     *  rounds to, and the spikes still in the buffer are given back to it
+     *  at the times of the steps they arrive at.
+     */
+    void run() {
+        // bring every voltage up to date at the step of the latest kick
+        float start = 0.0f;
+        for (float t: net.lastTime) start = Math.max( start, t );
+        step = stepOf( start );
+        for (int n = 0; n < net.neuronCount; n++) {
+            net.voltage[n] = net.voltage[n]
+                * net.decay.exp( net.lastTime[n] - timeOf( step ) );
+        }
+
+        float stop = simulator.stopTime();
+        long last = stepOf( stop );
+        for (;;) {
+            long next = nextStep();
+            float control = simulator.nextEventTime();
+            if ((next > last) && (control > stop)) {
+                break;
+            }
+            if ((next == Long.MAX_VALUE)
+            &&  (control == Float.POSITIVE_INFINITY)) {
+                // no events of any kind remain
+                break;
+            }
+            if ((next > last) || (control < timeOf( next ))) {
+                simulator.triggerNextEvent();
+                continue;
+            }
+            advance( next );
+        }
+        Arrays.fill( net.lastTime, timeOf( step ) );
+
+        // every pending spike in the buffer arrives within its length of
+        // now; the rest are in the overflow heap
+        for (long k = step + 1; (pending > 0) && (k <= step + mask); k++) {
+            int slot = (int)(k & mask);
+            for (int i = 0; i < counts[slot]; i++) {
+                simulator.giveBack( timeOf( k ), Simulator.EDGE | slots[slot][i] );
+            }
+            pending = pending - counts[slot];
+            counts[slot] = 0;
+        }
+        Arrays.fill( busy, 0L );
+        while (!overflow.isEmpty()) {
+            simulator.giveBack(
+                overflow.topTime(), Simulator.EDGE | overflow.topPayload()
+            );
+            overflow.removeTop();
+        }
+    }
+
+    /** The time of step k
+     */
+    private float timeOf( long k ) {
+        return (float)(k * (double)dt);
+    }
+
+    /** The step that time t rounds to, or Long.MAX_VALUE for infinity
+     */
+    private long stepOf( float t ) {
+        if (t == Float.POSITIVE_INFINITY) return Long.MAX_VALUE;
+        return (long)Math.floor( t / dt + 0.5 );
+    }
+
+    /** Time of the earliest pending primitive event, or infinity
+     */
+    private float earliestPrimitive() {
+        EventHeap p = simulator.primitiveSet;
+        return p.isEmpty() ? Float.POSITIVE_INFINITY : p.topTime();
+    }
+
+    /** The next step with anything to do, or Long.MAX_VALUE if none
+     */
+    private long nextStep() {
+        long next = Long.MAX_VALUE;
+        if (!simulator.primitiveSet.isEmpty()) {
+            next = Math.max( step, stepOf( earliestPrimitive() ) );
+        }
+        if (!overflow.isEmpty()) {
+            next = Math.min( next, stepOf( overflow.topTime() ) );
+        }
+        if (pending > 0) {
+            // the buffer holds steps step to step + mask; the words of busy
+            // do not wrap around, since the buffer is a multiple of 64 long
+            long k = step + 1;
+            while ((k < next) && (k <= step + mask)) {
+                int slot = (int)(k & mask);
+                long bits = busy[slot >>> 6] >>> (slot & 63);
+                if (bits != 0) {
+                    return Math.min( next, k + Long.numberOfTrailingZeros( bits ) );
+                }
+                k = k + 64 - (slot & 63);
+            }
+        }
+        return next;
+    }
+
+    /** Decay every voltage to step k, then apply everything arriving then
+     *  k may be the current step, if a report scheduled more events.
+     */
+    private void advance( long k ) {
+        float factor = (k == step + 1)
+            ? decay
+            : net.decay.exp( (float)(-(k - step) * (double)dt) );
+        float[] voltage = net.voltage;
+        for (int n = 0; n < voltage.length; n++) {
+            voltage[n] = voltage[n] * factor;
+        }
+        step = k;
+        float t = timeOf( k );
+
+        // spikes in the overflow heap that the buffer now reaches
+        while (!overflow.isEmpty() && (stepOf( overflow.topTime() ) <= k + mask)) {
+            append( Math.max( k, stepOf( overflow.topTime() ) ), (int)overflow.topPayload() );
+            overflow.removeTop();
+        }
+
+        // primitive events due by now: firings go first, as they would
+        // in the event set, and deliveries join this step's slot
+        EventHeap p = simulator.primitiveSet;
+        while (!p.isEmpty() && (stepOf( p.topTime() ) <= k)) {
+            long payload = p.topPayload();
+            p.removeTop();
+            long kind = payload & Simulator.KIND;
+            int id = (int)payload;
+            if (kind == Simulator.FIRE) {
+                fire( id, t );
+            } else {
+                int e = (kind == Simulator.EDGE) ? id : net.edgeOf[id];
+                if (e >= 0) append( k, e );
+            }
+        }
+
+        int slot = (int)(k & mask);
+        while (counts[slot] > 0) {
+            int n = counts[slot];
+            int[] edges = slots[slot];
+            slots[slot] = spare;
+            counts[slot] = 0;
+            pending = pending - n;
+            deliver( edges, n, t );
+            spare = edges;
+        }
+        busy[slot >>> 6] &= ~(1L << slot);
+    }
+
+    /** Apply n edges all arriving at time t
+     */
+    private void deliver( int[] edges, int n, float t ) {
+        for (int i = 0; i < n; i++) {
+            int target = net.targets[edges[i]];
+            if ((target < 0) && (target != CompiledNetwork.NOWHERE)) {
+                net.strengths[~target] += net.strengths[edges[i]];
+            }
+        }
+        int r = 0;
+        for (int i = 0; i < n; i++) {
+            int target = net.targets[edges[i]];
+            if (target < 0) continue;
+            if (!reached[target]) {
+                reached[target] = true;
+                input[target] = 0.0f;
+                touched[r] = target;
+                r = r + 1;
+            }
+            input[target] = input[target] + net.strengths[edges[i]];
+        }
+        for (int i = 0; i < r; i++) {
+            int d = touched[i];
+            reached[d] = false;
+            if (net.stream != null) net.stream.deliver( d, t, input[d] );
+            float v = net.voltage[d] + input[d];
+            net.voltage[d] = v;
+            if (v > net.threshold[d]) fire( d, t );
+        }
+    }
+
+    /** Neuron n fires at time t, the time of the current step
+     */
+    private void fire( int n, float t ) {
+        net.fireCount[n] = net.fireCount[n] + 1;
+        if (net.raster != null) net.raster.spike( n, t );
+        if (net.stats != null) net.stats.spike( n, t );
+        if (net.stream != null) net.stream.fire( n, t );
+        net.voltage[n] = 0.0f;
+        for (int e = net.offsets[n]; e < net.offsets[n + 1]; e++) {
+            append( step + steps[e], e );
+        }
+    }
+
+    /** Record edge e as arriving at step k, no earlier than the current step
+     */
+    private void append( long k, int e ) {
+        if (k - step > mask) {
+            overflow.add( timeOf( k ), e );
+            return;
+        }
+        int slot = (int)(k & mask);
+        busy[slot >>> 6] |= 1L << slot;
+        int c = counts[slot];
+        if (slots[slot] == null) {
+            slots[slot] = new int[8];
+        } else if (c == slots[slot].length) {
+            slots[slot] = Arrays.copyOf( slots[slot], c * 2 );
+        }
+        slots[slot][c] = e;
+        counts[slot] = c + 1;
+        pending = pending + 1;
+    }
+}
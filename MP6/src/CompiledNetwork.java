@@ -0,0 +1,235 @@
+// CompiledNetwork.java
+
+import java.util.Arrays;
+
+/** The neuron network frozen into dense arrays for fast simulation
+ *  @version: October 16, 2026
+ *  @see NeuronNetwork
+ *  @see Neuron
+ *  @see Synapse
+ *  @see Simulator
+ *
+ *  {@code compile} copies the state of every {@link Neuron} into arrays
+ *  indexed by neuron id, and the outgoing synapses of every neuron into
+ *  a compressed sparse row (CSR) adjacency: the synapses leaving neuron
+ *  n are the edges {@code offsets[n]} up to {@code offsets[n+1]}, and
+ *  each edge has a target, a delay and a strength.  The target of a
+ *  primary synapse is the id of its destination neuron; the target of a
+ *  secondary synapse is {@code ~e}, where e is the edge of the primary
+ *  synapse it strengthens.  Edges that lead nowhere, because of errors
+ *  in the network description, have target {@code NOWHERE}.
+ *
+ *  The simulation methods here mirror {@code Neuron.fire},
+ *  {@code Neuron.kick} and {@code Synapse.fire}, but touch only these
+ *  arrays, so a run does no pointer chasing and the network costs a few
+ *  words per neuron and per synapse instead of a few objects.  When the
+ *  run is over, {@code writeBack} copies the state back to the objects.
+ *  Where the edges of a firing neuron are scheduled is up to the caller,
+ *  so that several engines can share these methods.
+ */
+class CompiledNetwork {
+
+    /** Receives the edges to deliver when a neuron fires
+     */
+    public interface EdgeScheduler {
+        /** Edge e is to deliver its output at time t
+         */
+        void scheduleEdge( float t, int e );
+    }
+
+    /** The target of an edge that has no destination
+     */
+    static final int NOWHERE = Integer.MIN_VALUE;
+
+    // per neuron state, indexed by neuron id
+    final int neuronCount;
+    final float[] threshold;
+    final float[] voltage;
+    final float[] lastTime;
+    final int[] fireCount;
+
+    // CSR adjacency, see above
+    final int[] offsets;
+    final int[] targets;
+    final float[] delays;
+    final float[] strengths;
+
+    // edge of each synapse indexed by synapse id, -1 if it has no source
+    final int[] edgeOf;
+
+    // how voltages decay between kicks
+    final Decay decay;
+
+    // records every firing, or null, see SpikeRaster
+    SpikeRaster raster = null;
+
+    // the intervals between firings, or null, see FiringStats
+    FiringStats stats = null;
+
+    // the spike stream while anybody subscribes, or null, see SpikeStream
+    SpikeStream stream = null;
+
+    /** An empty network of the given size, for compile or an image
+     */
+    CompiledNetwork( int neurons, int edges, int synapses, Decay decay ) {
+        this.decay = decay;
+        neuronCount = neurons;
+        threshold = new float[neurons];
+        voltage = new float[neurons];
+        lastTime = new float[neurons];
+        fireCount = new int[neurons];
+        offsets = new int[neurons + 1];
+        targets = new int[edges];
+        delays = new float[edges];
+        strengths = new float[edges];
+        edgeOf = new int[synapses];
+    }
+
+    /** A network with the structure of base but its own state
+     *  The edges are shared with base, and so are the threshold and
+     *  strength arrays given, so the caller must copy any array that
+     *  either network may change.  Voltages and times start as copies of
+     *  those in base, and fire counts at zero, so the new network counts
+     *  only the firings of its own run.
+     *  @param base the network to share the structure of
+     *  @param threshold the thresholds of the new network
+     *  @param voltage the initial voltages of the new network
+     *  @param strengths the strengths of the new network's edges
+     */
+    CompiledNetwork( CompiledNetwork base,
+                     float[] threshold, float[] voltage, float[] strengths ) {
+        neuronCount = base.neuronCount;
+        this.threshold = threshold;
+        this.voltage = voltage;
+        lastTime = base.lastTime.clone();
+        fireCount = new int[neuronCount];
+        offsets = base.offsets;
+        targets = base.targets;
+        delays = base.delays;
+        this.strengths = strengths;
+        edgeOf = base.edgeOf;
+        decay = base.decay.view();
+    }
+
+    /** Freeze the current state of a network into arrays
+     *  @param net the network
+     *  @param decay how voltages are to decay between kicks
+     *  @return the compiled network
+     */
+    static CompiledNetwork compile( NeuronNetwork net, Decay decay ) {
+        int neurons = net.neuronIndex.size();
+        int synapses = net.synapseIndex.size();
+        int edges = 0;
+        for (Neuron n: net.neuronIndex) {
+            edges = edges + n.synapses.size();
+        }
+
+        CompiledNetwork c = new CompiledNetwork( neurons, edges, synapses, decay );
+        Arrays.fill( c.edgeOf, -1 );
+
+        // lay out the edges of each neuron in the order of its list
+        int e = 0;
+        for (Neuron n: net.neuronIndex) {
+            c.threshold[n.id] = n.threshold;
+            c.voltage[n.id] = n.voltage;
+            c.lastTime[n.id] = n.time;
+            c.fireCount[n.id] = n.fireCount;
+            c.offsets[n.id] = e;
+            for (Synapse s: n.synapses) {
+                c.edgeOf[s.id] = e;
+                c.delays[e] = s.delay;
+                c.strengths[e] = s.strength;
+                e = e + 1;
+            }
+        }
+        c.offsets[neurons] = e;
+
+        // targets can only be filled in once every edge is numbered
+        for (Neuron n: net.neuronIndex) {
+            for (Synapse s: n.synapses) {
+                c.targets[c.edgeOf[s.id]] = c.targetOf( s );
+            }
+        }
+        return c;
+    }
+
+    /** Work out the encoded target of the edge for synapse s
+     */
+    private int targetOf( Synapse s ) {
+        if (s instanceof PrimarySynapse) {
+            Neuron d = ((PrimarySynapse)s).destination;
+            return (d == null) ? NOWHERE : d.id;
+        }
+        PrimarySynapse d = ((SecondarySynapse)s).destination;
+        if ((d == null) || (edgeOf[d.id] < 0)) return NOWHERE;
+        return ~edgeOf[d.id];
+    }
+
+    /** Copy the state of the simulation back into the network objects
+     *  @param net the network this was compiled from
+     */
+    void writeBack( NeuronNetwork net ) {
+        for (Neuron n: net.neuronIndex) {
+            n.voltage = voltage[n.id];
+            n.time = lastTime[n.id];
+            n.fireCount = fireCount[n.id];
+            for (Synapse s: n.synapses) {
+                s.strength = strengths[edgeOf[s.id]];
+            }
+        }
+    }
+
+    // simulation methods
+
+    /** Neuron n fires at time t
+     *  @param s where to schedule the deliveries of its edges
+     */
+    void fire( int n, float t, EdgeScheduler s ) {
+        fireCount[n] = fireCount[n] + 1;
+        if (raster != null) raster.spike( n, t );
+        if (stats != null) stats.spike( n, t );
+        if (stream != null) stream.fire( n, t );
+        voltage[n] = 0.0f;
+        for (int e = offsets[n]; e < offsets[n + 1]; e++) {
+            s.scheduleEdge( t + delays[e], e );
+        }
+    }
+
+    /** Edge e delivers its output at time t
+     *  @param s where to schedule deliveries if this makes a neuron fire
+     */
+    void deliver( int e, float t, EdgeScheduler s ) {
+        deliver( e, t, s, decay );
+    }
+
+    /** Edge e delivers its output at time t, decaying with d
+     *  For threads that share this network, each with its own view of
+     *  the decay, see {@link Decay}.
+     */
+    void deliver( int e, float t, EdgeScheduler s, Decay d ) {
+        int target = targets[e];
+        if (target >= 0) {
+            kick( target, t, strengths[e], s, d );
+        } else if (target != NOWHERE) {
+            strengths[~target] += strengths[e];
+        }
+    }
+
+    /** Neuron n receives input of the given strength at time t
+     *  @param s where to schedule deliveries if n fires
+     */
+    void kick( int n, float t, float strength, EdgeScheduler s ) {
+        kick( n, t, strength, s, decay );
+    }
+
+    /** Neuron n receives input at time t, decaying with d
+     */
+    void kick( int n, float t, float strength, EdgeScheduler s, Decay d ) {
+        if (stream != null) stream.deliver( n, t, strength );
+        // v2 = v1 e^(t1-t2) + s
+        float v = (voltage[n] * d.exp( lastTime[n] - t )) + strength;
+        voltage[n] = v;
+        lastTime[n] = t;
+        if (v > threshold[n]) fire( n, t, s );
+    }
+}
@@ -0,0 +1,238 @@
+// Decay.java
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Evaluation of the exponential decay of neuron voltages
+ *  @version: October 16, 2026
+ *  @see Neuron
+ *  @see CompiledNetwork
+ *  @see Simulator
+ *
+ *  Every kick decays the voltage of a neuron by e^(t1-t2), where t1 is
+ *  the time of its last kick and t2 the time now; {@code exp} computes
+ *  that factor in one of three modes:
+ *
+ *  {@code exact} computes {@code (float)Math.exp(x)} every time, as the
+ *  simulator always has.
+ *
+ *  {@code cached} gives the same results, but remembers recent arguments
+ *  and their results in a small direct-mapped table, so when many kicks
+ *  come after the same interval, as they do when delays are few or
+ *  quantized, most of them skip the call to {@code Math.exp}.  Each
+ *  entry packs its argument and result into one {@code long} of an
+ *  {@code AtomicLongArray}, read and written with opaque access, which
+ *  unlike a plain {@code long} is never torn, so threads of a parallel
+ *  engine can share the table without locking and never see the result
+ *  of one argument with another.
+ *
+ *  {@code table} interpolates linearly in a table of e^-x at steps of
+ *  1/1024 from 0 to 16.  Intervals that are whole multiples of the step
+ *  come straight from the table and are exact; others are within a few
+ *  parts in 10^7, about the precision of a float.  Intervals beyond the
+ *  table are computed exactly.
+ *
+ *  In the inexact mode every 64th call is also computed exactly, and
+ *  {@code report} prints the largest and mean errors seen, so each mode
+ *  can be tried on a given network before it is chosen for a long run.
+ *  The command {@code decay m} selects mode m for later runs, and
+ *  {@code decay report} prints the report for runs since then; the exact
+ *  mode counts nothing.
+ *
+ *  Counting is a plain add, so that it costs next to nothing beside
+ *  {@code Math.exp}; for that, only one thread may use a Decay.  Each
+ *  worker of the parallel engines and each run of a sweep uses its own
+ *  {@code view} instead, which shares the cache but keeps its own counts,
+ *  and adds them to the Decay it is a view of with {@code merge} when
+ *  the worker is done.
+ */
+class Decay {
+
+    // the modes, named as in the decay command
+    static final String[] MODES = { "exact", "cached", "table" };
+    static final int EXACT = 0;
+    static final int CACHED = 1;
+    static final int TABLE = 2;
+
+    // the table of e^-x, shared by every Decay in table mode
+    private static final int STEPS = 1024;          // entries per time unit
+    private static final float LIMIT = 16.0f;       // extent of the table
+    private static final float[] TABLE_VALUES = new float[(int)(LIMIT * STEPS) + 2];
+    static {
+        for (int i = 0; i < TABLE_VALUES.length; i++) {
+            TABLE_VALUES[i] = (float)Math.exp( -(double)i / STEPS );
+        }
+    }
+
+    // the cache; a free entry has an argument no interval can have
+    private static final int CACHE_SIZE = 256;
+    private static final long FREE = ((long)Float.floatToRawIntBits( Float.NaN )) << 32;
+    private final AtomicLongArray cache;
+
+    private final int mode;
+
+    // the Decay whose report includes the counts of this one, or this
+    private final Decay owner;
+
+    // every SAMPLE'th call in table mode is compared with the exact value
+    private static final int SAMPLE = 64;
+
+    // statistics for report, used only by this Decay's thread until merged
+    private long calls = 0;
+    private long hits = 0;
+    private long samples = 0;
+    private double maxError = 0.0;
+    private double maxRelative = 0.0;
+    private double sumRelative = 0.0;
+
+    /** Create an evaluator
+     *  @param mode one of EXACT, CACHED or TABLE
+     */
+    Decay( int mode ) {
+        this.mode = mode;
+        owner = this;
+        if (mode == CACHED) {
+            cache = new AtomicLongArray( CACHE_SIZE );
+            for (int i = 0; i < CACHE_SIZE; i++) cache.setOpaque( i, FREE );
+        } else {
+            cache = null;
+        }
+    }
+
+    /** A view of owner for another thread, see above
+     */
+    private Decay( Decay owner ) {
+        mode = owner.mode;
+        cache = owner.cache;
+        this.owner = owner;
+    }
+
+    /** A view of this evaluator for one more thread
+     *  It gives the same results and shares the cache, but counts for
+     *  itself until {@code merge} is called.
+     */
+    Decay view() {
+        return new Decay( owner );
+    }
+
+    /** Add the counts of a view to the evaluator it is a view of
+     *  The view's thread must be done with it, or be the caller; the view
+     *  starts counting again from zero.
+     */
+    void merge() {
+        if (owner == this) return;
+        synchronized (owner) {
+            owner.calls = owner.calls + calls;
+            owner.hits = owner.hits + hits;
+            owner.samples = owner.samples + samples;
+            owner.maxError = Math.max( owner.maxError, maxError );
+            owner.maxRelative = Math.max( owner.maxRelative, maxRelative );
+            owner.sumRelative = owner.sumRelative + sumRelative;
+        }
+        calls = 0;
+        hits = 0;
+        samples = 0;
+        maxError = 0.0;
+        maxRelative = 0.0;
+        sumRelative = 0.0;
+    }
+
+    /** The decay factor e^x for an interval of -x, as a float
+     *  @param x the time of the last kick minus the time now, at most 0
+     *  @return the factor
+     */
+    float exp( float x ) {
+        if (mode == EXACT) return (float)Math.exp( x );
+        calls = calls + 1;
+
+        float r;
+        if (mode == CACHED) {
+            int bits = Float.floatToRawIntBits( x );
+            int slot = (bits ^ (bits >>> 11) ^ (bits >>> 19)) & (CACHE_SIZE - 1);
+            long entry = cache.getOpaque( slot );
+            if ((int)(entry >>> 32) == bits) {
+                hits = hits + 1;
+                return Float.intBitsToFloat( (int)entry );
+            }
+            r = (float)Math.exp( x );
+            cache.setOpaque(
+                slot,
+                ((long)bits << 32) | (Float.floatToRawIntBits( r ) & 0xFFFFFFFFL)
+            );
+            return r;
+        }
+
+        float u = -x * STEPS;
+        if ((u >= 0.0f) && (u < LIMIT * STEPS)) {
+            int i = (int)u;
+            float f = u - i;
+            r = TABLE_VALUES[i] + f * (TABLE_VALUES[i + 1] - TABLE_VALUES[i]);
+        } else {
+            r = (float)Math.exp( x );
+        }
+        if ((calls & (SAMPLE - 1)) == 0) sample( x, r );
+        return r;
+    }
+
+    /** Compare one result with the exact value
+     */
+    private void sample( float x, float r ) {
+        double exact = (float)Math.exp( x );
+        double error = Math.abs( r - exact );
+        double relative = (exact == 0.0) ? 0.0 : error / exact;
+        samples = samples + 1;
+        maxError = Math.max( maxError, error );
+        maxRelative = Math.max( maxRelative, relative );
+        sumRelative = sumRelative + relative;
+    }
+
+    /** Describe the calls made since this evaluator was created
+     *  @return one line of text
+     */
+    synchronized String report() {
+        StringBuilder s = new StringBuilder( "decay " + MODES[mode] + ": " );
+        if (mode == EXACT) {
+            // not counted, see above
+            return s.append( "exact" ).toString();
+        }
+        s.append( calls ).append( " evaluations" );
+        if (mode == CACHED) {
+            s.append( ", " ).append( hits ).append( " from the cache (" );
+            s.append( (calls == 0) ? 0 : (100 * hits) / calls ).append( "%)" );
+            s.append( ", exact" );
+        } else if (mode == TABLE) {
+            s.append( ", " ).append( samples ).append( " sampled" );
+            s.append( ", max error " ).append( (float)maxError );
+            s.append( ", max relative error " ).append( (float)maxRelative );
+            s.append( ", mean relative error " );
+            s.append( (samples == 0) ? 0.0f : (float)(sumRelative / samples) );
+        }
+        return s.toString();
+    }
+
+    /** Scan a {@code decay} command, see above
+     *  @param sim the simulation it applies to
+     *  @param sc the scanner, positioned just after the command
+     */
+    static void command( Simulation sim, Tokenizer sc ) {
+        String what = ScanSupport.nextName(
+            sc,
+            () -> "decay ???"
+        );
+        ScanSupport.lineEnd(
+            sc,
+            () -> "decay " + what
+        );
+        if (what == null) return;
+        if ("report".equals( what )) {
+            sim.out.println( sim.simulator.decay.report() );
+            return;
+        }
+        for (int m = 0; m < MODES.length; m++) {
+            if (MODES[m].equals( what )) {
+                sim.simulator.decay = new Decay( m );
+                return;
+            }
+        }
+        Errors.warning( "decay " + what + " -- no such mode" );
+    }
+}
@@ -0,0 +1,195 @@
+// DeliveryRing.java
+
+import java.util.Arrays;
+
+/** Circular buffer of pending synapse deliveries, bucketed by clock tick
+ *  @version: October 16, 2026
+ *  @see Simulator
+ *  @see Neuron
+ *  @see Synapse
+ *
+ *  In this mode of the {@link Simulator}, the time of every synapse
+ *  delivery is rounded up to a whole number of ticks, and the delivery
+ *  is appended to the slot of a circular buffer indexed by that tick.
+ *  Rounding up, never down, keeps a delivery scheduled by an event off
+ *  the tick grid from landing before the time it was scheduled at.  A
+ *  spike therefore costs O(1) per outgoing synapse instead of a heap
+ *  operation, and each slot is drained in one pass over an array.
+ *
+ *  When a slot is drained, deliveries by secondary synapses are applied
+ *  first, then the strengths of the primary synapses are summed per
+ *  destination neuron, and each destination gets one {@code kick} with
+ *  the total.  A neuron that receives several inputs in one tick thus
+ *  checks its threshold once, against the sum, and fires at most once
+ *  for that pass over the slot.  Deliveries that round to the tick being
+ *  drained (zero-delay synapses) are handled by a further pass over the
+ *  same slot before time moves on.
+ *
+ *  The buffer doubles whenever a delivery lands beyond its last slot, so
+ *  it need not be sized for the longest synapse delay in advance.
+ */
+class DeliveryRing {
+
+    private final NeuronNetwork net;    // whose synapses deliver here
+    private final float tick;           // time units per slot
+
+    // slot (k & mask) holds the deliveries for tick k; a synapse is
+    // recorded by id if primary, and by ~id if secondary
+    private int[][] slots = new int[16][];
+    private int[] counts = new int[16];
+    private int mask = 15;
+
+    private long cursor = 0;    // no pending delivery is earlier than this
+    private long last = 0;      // no pending delivery is later than this
+    private int pending = 0;    // deliveries in all slots
+
+    // spare array swapped in for the slot being drained
+    private int[] spare = new int[8];
+
+    // sums the input per destination neuron
+    private final InputAccumulator accumulator = new InputAccumulator();
+
+    /** Create an empty ring
+     *  @param net the network whose synapses will deliver through it
+     *  @param tick the time units per slot; must be positive
+     */
+    public DeliveryRing( NeuronNetwork net, float tick ) {
+        this.net = net;
+        this.tick = tick;
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new int[8];
+        }
+    }
+
+    /** Are any deliveries pending?
+     *  @return true if there are none
+     */
+    public boolean isEmpty() {
+        return pending == 0;
+    }
+
+    /** How many deliveries are pending?
+     *  @return the number
+     */
+    public int size() {
+        return pending;
+    }
+
+    /** Add a delivery
+     *  @param time when synapse s delivers, before rounding to a tick
+     *  @param s the synapse
+     */
+    public void add( float time, Synapse s ) {
+        long k = (long)Math.ceil( time / (double)tick );
+        if ((float)((k - 1) * (double)tick) >= time) {
+            k = k - 1; // time was on a tick, up to rounding error
+        }
+        while ((float)(k * (double)tick) < time) {
+            k = k + 1; // so nextTime() is never earlier than time
+        }
+        if (pending == 0) {
+            cursor = k;
+            last = k;
+        }
+        long lo = Math.min( cursor, k );
+        long hi = Math.max( last, k );
+        while (hi - lo > mask) {
+            grow();
+        }
+        cursor = lo;
+        last = hi;
+
+        int slot = (int)(k & mask);
+        int n = counts[slot];
+        if (n == slots[slot].length) {
+            slots[slot] = Arrays.copyOf( slots[slot], n * 2 );
+        }
+        slots[slot][n] = (s instanceof SecondarySynapse) ? ~s.id : s.id;
+        counts[slot] = n + 1;
+        pending = pending + 1;
+    }
+
+    /** Time of the earliest pending deliveries; the ring must not be empty
+     *  @return the time of the earliest nonempty tick
+     */
+    public float nextTime() {
+        while (counts[(int)(cursor & mask)] == 0) {
+            cursor = cursor + 1;
+        }
+        return (float)(cursor * (double)tick);
+    }
+
+    /** Deliver everything in the earliest nonempty tick
+     *  The ring must not be empty.
+     */
+    public void drain() {
+        float time = nextTime();
+        long k = cursor;
+        for (;;) {
+            // recomputed each pass because deliveries may grow the ring
+            int slot = (int)(k & mask);
+            int n = counts[slot];
+            if (n == 0) break;
+
+            // take the slot's contents; zero-delay deliveries made while
+            // these are processed go into the spare for the next pass
+            int[] ids = slots[slot];
+            slots[slot] = spare;
+            counts[slot] = 0;
+            pending = pending - n;
+            deliver( ids, n, time );
+            spare = ids;
+        }
+    }
+
+    /** Deliver n synapse outputs from ids, all at the given time
+     */
+    private void deliver( int[] ids, int n, float time ) {
+        // secondary synapses adjust strengths before any are used
+        for (int i = 0; i < n; i++) {
+            if (ids[i] < 0) {
+                net.synapseIndex.get( ~ids[i] ).fire( time );
+            }
+        }
+
+        // sum the input to each destination in order of first arrival
+        accumulator.begin( net.neuronIndex.size() );
+        for (int i = 0; i < n; i++) {
+            if (ids[i] < 0) continue;
+            PrimarySynapse p
+                = (PrimarySynapse)net.synapseIndex.get( ids[i] );
+            if (p.destination == null) continue;
+            accumulator.add( p.destination.id, p.strength );
+        }
+
+        // the kicks may schedule more deliveries, but never into ids
+        for (int i = 0; i < accumulator.count(); i++) {
+            int d = accumulator.neuron( i );
+            net.neuronIndex.get( d ).kick( time, accumulator.input( d ) );
+        }
+    }
+
+    /** Double the number of slots, keeping every pending delivery
+     */
+    private void grow() {
+        int[][] oldSlots = slots;
+        int[] oldCounts = counts;
+        int oldMask = mask;
+
+        slots = new int[oldSlots.length * 2][];
+        counts = new int[oldSlots.length * 2];
+        mask = slots.length - 1;
+
+        // before the move, slot j holds the one tick in cursor..cursor+mask
+        // that is congruent to j
+        for (int j = 0; j < oldSlots.length; j++) {
+            long k = cursor + ((j - cursor) & oldMask);
+            int slot = (int)(k & mask);
+            slots[slot] = oldSlots[j];
+            counts[slot] = oldCounts[j];
+        }
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == null) slots[i] = new int[8];
+        }
+    }
+}
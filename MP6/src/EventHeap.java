@@ -0,0 +1,116 @@
+// EventHeap.java
+
+import java.util.Arrays;
+
+/** Allocation-free priority queue of primitive events
+ *  @version: October 16, 2026
+ *  @see Simulator
+ *
+ *  Each event is just a time and a 64-bit payload; the payload says what
+ *  kind of event it is and which object it applies to, see
+ *  {@code Simulator.scheduleFire} and {@code Simulator.scheduleDelivery}.
+ *  The events are held in a binary heap laid out in two parallel arrays,
+ *  a {@code float[]} of times and a {@code long[]} of payloads, so
+ *  adding or removing an event never allocates an object once the arrays
+ *  have grown to the size of the simulation.
+ *
+ *  Events are ordered by time, and events with equal times are ordered
+ *  by payload, so the order of removal does not depend on the order in
+ *  which events were added.
+ */
+class EventHeap {
+
+    private float[] times = new float[64];
+    private long[] payloads = new long[64];
+    private int size = 0;
+
+    /** Is the heap empty?
+     *  @return true if there are no pending events
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** How many events are pending?
+     *  @return the number of events in the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /** Time of the earliest event; the heap must not be empty
+     *  @return the time
+     */
+    public float topTime() {
+        return times[0];
+    }
+
+    /** Payload of the earliest event; the heap must not be empty
+     *  @return the payload
+     */
+    public long topPayload() {
+        return payloads[0];
+    }
+
+    /** Add an event to the heap
+     *  @param time when the event happens
+     *  @param payload what happens then
+     */
+    public void add( float time, long payload ) {
+        if (size == times.length) {
+            times = Arrays.copyOf( times, size * 2 );
+            payloads = Arrays.copyOf( payloads, size * 2 );
+        }
+
+        // sift the hole at the end up to where the new event belongs
+        int i = size;
+        size = size + 1;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before( time, payload, times[parent], payloads[parent] )) {
+                break;
+            }
+            times[i] = times[parent];
+            payloads[i] = payloads[parent];
+            i = parent;
+        }
+        times[i] = time;
+        payloads[i] = payload;
+    }
+
+    /** Remove the earliest event; the heap must not be empty
+     *  Read it first with {@code topTime} and {@code topPayload}.
+     */
+    public void removeTop() {
+        size = size - 1;
+        if (size == 0) return;
+
+        // sift the last event down from the hole left at the root
+        float time = times[size];
+        long payload = payloads[size];
+        int i = 0;
+        for (;;) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if ((child + 1 < size)
+            &&  before( times[child + 1], payloads[child + 1],
+                        times[child], payloads[child] )) {
+                child = child + 1;
+            }
+            if (!before( times[child], payloads[child], time, payload )) {
+                break;
+            }
+            times[i] = times[child];
+            payloads[i] = payloads[child];
+            i = child;
+        }
+        times[i] = time;
+        payloads[i] = payload;
+    }
+
+    /** Does event (t1,p1) come before event (t2,p2)?
+     */
+    private static boolean before( float t1, long p1, float t2, long p2 ) {
+        return (t1 < t2) || ((t1 == t2) && (p1 < p2));
+    }
+}
@@ -0,0 +1,84 @@
+// FiringStats.java
+
+import java.util.Arrays;
+
+/** Keeps the inter-spike intervals of every neuron, as running statistics
+ *  @version: October 16, 2026
+ *  @see SimulationOutput
+ *  @see Neuron
+ *
+ *  Once a simulation has a report of statistics, each firing of each
+ *  neuron is given to its FiringStats, which keeps, for each neuron,
+ *  the time it last fired and the number, mean and sum of squared
+ *  deviations of the intervals between its firings, updated by
+ *  Welford's method.  No firing is kept, so the cost is a few arrays
+ *  the size of the network, and a few operations per firing.  Since
+ *  the intervals must be seen in time order, a run with statistics uses
+ *  the sequential compiled engine in place of the parallel and time
+ *  warp engines, as a run with a {@link SpikeRaster} does.
+ */
+class FiringStats {
+
+    // for each neuron, by id
+    private float[] last;       // when it last fired, NaN if never
+    private int[] count;        // number of intervals between firings
+    private double[] mean;      // their mean
+    private double[] m2;        // the sum of their squared deviations
+
+    /** Statistics for a network
+     *  @param neurons the number of neurons declared so far
+     */
+    FiringStats( int neurons ) {
+        last = new float[neurons];
+        Arrays.fill( last, Float.NaN );
+        count = new int[neurons];
+        mean = new double[neurons];
+        m2 = new double[neurons];
+    }
+
+    /** Neuron id fired at the given time
+     */
+    void spike( int id, float time ) {
+        if (id >= last.length) grow( id );
+        float before = last[id];
+        last[id] = time;
+        if (before != before) return; // NaN, its first firing
+
+        // Welford's update of the mean and squared deviations
+        double x = time - before;
+        int k = count[id] + 1;
+        double d = x - mean[id];
+        mean[id] = mean[id] + d / k;
+        m2[id] = m2[id] + d * (x - mean[id]);
+        count[id] = k;
+    }
+
+    // make room for neurons declared after the statistics began
+    private void grow( int id ) {
+        int size = Math.max( id + 1, last.length * 2 );
+        int old = last.length;
+        last = Arrays.copyOf( last, size );
+        Arrays.fill( last, old, size, Float.NaN );
+        count = Arrays.copyOf( count, size );
+        mean = Arrays.copyOf( mean, size );
+        m2 = Arrays.copyOf( m2, size );
+    }
+
+    /** The number of intervals between firings of neuron id
+     */
+    int intervals( int id ) {
+        return (id < count.length) ? count[id] : 0;
+    }
+
+    /** The mean interval between firings of neuron id
+     */
+    double meanInterval( int id ) {
+        return (id < mean.length) ? mean[id] : 0.0;
+    }
+
+    /** The sum of the squared deviations of neuron id's intervals
+     */
+    double squaredDeviations( int id ) {
+        return (id < m2.length) ? m2[id] : 0.0;
+    }
+}
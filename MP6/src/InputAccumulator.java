@@ -0,0 +1,68 @@
+// InputAccumulator.java
+
+import java.util.Arrays;
+
+/** Sums the inputs reaching each neuron at one instant
+ *  @version: October 16, 2026
+ *  @see DeliveryRing
+ *  @see Simulator
+ *
+ *  Between {@code begin} and the end of the pass, {@code add} sums the
+ *  strengths arriving at each neuron; afterward the neurons reached can
+ *  be visited in order of first arrival, each once, with the total of
+ *  its input.  Starting a new pass costs nothing per neuron: a neuron's
+ *  sum is only valid if its mark is the number of the current pass.
+ */
+class InputAccumulator {
+
+    private float[] input = new float[0];
+    private int[] mark = new int[0];
+    private int[] touched = new int[0];
+    private int pass = 0;
+    private int count = 0;
+
+    /** Start a pass
+     *  @param neurons the number of neurons in the network
+     */
+    void begin( int neurons ) {
+        if (mark.length < neurons) {
+            input = Arrays.copyOf( input, neurons );
+            mark = Arrays.copyOf( mark, neurons );
+            touched = Arrays.copyOf( touched, neurons );
+        }
+        pass = pass + 1;
+        count = 0;
+    }
+
+    /** Add input to neuron n
+     *  @param n the neuron id
+     *  @param strength the input
+     */
+    void add( int n, float strength ) {
+        if (mark[n] != pass) {
+            mark[n] = pass;
+            input[n] = 0.0f;
+            touched[count] = n;
+            count = count + 1;
+        }
+        input[n] = input[n] + strength;
+    }
+
+    /** How many neurons have input in this pass?
+     */
+    int count() {
+        return count;
+    }
+
+    /** The i'th neuron to get input in this pass
+     */
+    int neuron( int i ) {
+        return touched[i];
+    }
+
+    /** The total input to neuron n in this pass
+     */
+    float input( int n ) {
+        return input[n];
+    }
+}
@@ -0,0 +1,348 @@
+// NetworkGenerator.java
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+
+/** Writes large synthetic neuron networks, for load and scale testing
+ *  @version: October 16, 2026
+ *  @see NeuronNetwork
+ *  @see ParallelLoader
+ *
+ *  The program writes a network description that {@link NeuronNetwork}
+ *  reads: the {@code neuron} declarations, then the synapses, then
+ *  optionally {@code output} and {@code run} commands.  Each line is
+ *  written as soon as it is made, so the size of the file is limited
+ *  only by the disk; the program keeps no part of the network.  The
+ *  same arguments and seed always give the same file.
+ *  <PRE>
+ *  java NetworkGenerator topology neurons [option value]...
+ *  </PRE>
+ *  The topologies are
+ *  <DL>
+ *  <DT>{@code random}<DD>Erdos-Renyi: each possible synapse exists
+ *      with probability fan/neurons, so fan is the mean
+ *  <DT>{@code smallworld}<DD>Watts-Strogatz: each neuron joins its fan
+ *      nearest neighbors on a ring, each synapse moved to a random
+ *      neuron with probability {@code rewire}
+ *  <DT>{@code scalefree}<DD>each neuron has fan synapses, whose other
+ *      ends are chosen with probability falling as a power of the
+ *      neuron number, so the degree at that end follows a power law
+ *      with the given {@code exponent}, which must be over 2
+ *  <DT>{@code layered}<DD>feed-forward: the neurons are split into
+ *      {@code layers} equal layers, and each neuron has fan synapses to
+ *      random neurons in the next layer
+ *  </DL>
+ *  The options are
+ *  <PRE>
+ *  seed s          the random seed, default 1
+ *  fanout k        k synapses from each neuron, the default, with k = 10
+ *  fanin k         k synapses to each neuron instead
+ *  rewire p        for smallworld, default 0.1
+ *  exponent g      for scalefree, default 2.5
+ *  layers l        for layered, default 4
+ *  threshold d     distributions of the neuron thresholds and initial
+ *  voltage d       voltages, default fixed:1 and uniform:0:1.5
+ *  delay d         distributions of the synapse delays, default
+ *  strength d      uniform:0.5:1.5, and strengths, default uniform:-0.2:0.5
+ *  output i,l      add an output command, interval i, length l
+ *  run t           end with run t, or with run if t is forever,
+ *                  which runs on any engine until no events remain
+ *  </PRE>
+ *  A distribution d is {@code fixed:x}, {@code uniform:a:b},
+ *  {@code normal:mean:sd}, {@code lognormal:mu:sigma} or
+ *  {@code exponential:mean}; negative delays are raised to 0.  The
+ *  neurons are named N followed by a fixed number of digits, at least 3.
+ *  The file goes to standard output.
+ */
+class NetworkGenerator {
+
+    /** A distribution of random values, see above
+     */
+    private static abstract class Distribution {
+        abstract double sample( SplittableRandom r );
+
+        /** Parse d, as described above
+         *  @return the distribution, or null if d is not one
+         */
+        static Distribution parse( String d ) {
+            String[] p = d.split( ":" );
+            double[] x = new double[p.length - 1];
+            try {
+                for (int i = 1; i < p.length; i++) {
+                    x[i - 1] = Double.parseDouble( p[i] );
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if ("fixed".equals( p[0] ) && (x.length == 1)) {
+                return new Distribution() {
+                    double sample( SplittableRandom r ) {
+                        return x[0];
+                    }
+                };
+            } else if ("uniform".equals( p[0] ) && (x.length == 2)) {
+                return new Distribution() {
+                    double sample( SplittableRandom r ) {
+                        return x[0] + (x[1] - x[0]) * r.nextDouble();
+                    }
+                };
+            } else if ("normal".equals( p[0] ) && (x.length == 2)) {
+                return new Distribution() {
+                    double sample( SplittableRandom r ) {
+                        return x[0] + x[1] * r.nextGaussian();
+                    }
+                };
+            } else if ("lognormal".equals( p[0] ) && (x.length == 2)) {
+                return new Distribution() {
+                    double sample( SplittableRandom r ) {
+                        return Math.exp( x[0] + x[1] * r.nextGaussian() );
+                    }
+                };
+            } else if ("exponential".equals( p[0] ) && (x.length == 1)) {
+                return new Distribution() {
+                    double sample( SplittableRandom r ) {
+                        return -x[0] * Math.log( 1.0 - r.nextDouble() );
+                    }
+                };
+            }
+            return null;
+        }
+    }
+
+    // the arguments, see above
+    private String topology;
+    private int neurons;
+    private long seed = 1;
+    private int fan = 10;
+    private boolean fanIn = false;
+    private double rewire = 0.1;
+    private double exponent = 2.5;
+    private int layers = 4;
+    private Distribution threshold = Distribution.parse( "fixed:1" );
+    private Distribution voltage = Distribution.parse( "uniform:0:1.5" );
+    private Distribution delay = Distribution.parse( "uniform:0.5:1.5" );
+    private Distribution strength = Distribution.parse( "uniform:-0.2:0.5" );
+    private String output = null;
+    private String run = null;
+
+    private SplittableRandom random;
+    private Writer out;
+    private char[] name;        // N and digits, rewritten for each name
+
+    /** Parse the command line, see above
+     */
+    NetworkGenerator( String[] args ) {
+        if (args.length < 2) {
+            Errors.fatal(
+                "usage: java NetworkGenerator topology neurons [option value]..."
+            );
+        }
+        topology = args[0];
+        if (!"random".equals( topology ) && !"smallworld".equals( topology )
+        &&  !"scalefree".equals( topology ) && !"layered".equals( topology )) {
+            Errors.fatal( topology + " -- not a topology" );
+        }
+        neurons = parseInt( "neurons", args[1] );
+        for (int i = 2; i < args.length; i = i + 2) {
+            String option = args[i];
+            if (i + 1 >= args.length) Errors.fatal( option + " -- missing value" );
+            String value = args[i + 1];
+            if ("seed".equals( option )) {
+                try {
+                    seed = Long.parseLong( value );
+                } catch (NumberFormatException e) {
+                    Errors.fatal( "seed " + value + " -- not a number" );
+                }
+            } else if ("fanout".equals( option ) || "fanin".equals( option )) {
+                fan = parseInt( option, value );
+                fanIn = "fanin".equals( option );
+            } else if ("rewire".equals( option )) {
+                rewire = parseDouble( option, value );
+            } else if ("exponent".equals( option )) {
+                exponent = parseDouble( option, value );
+                if (exponent <= 2.0) Errors.fatal( "exponent " + value + " -- must be over 2" );
+            } else if ("layers".equals( option )) {
+                layers = parseInt( option, value );
+            } else if ("threshold".equals( option )) {
+                threshold = parseDistribution( option, value );
+            } else if ("voltage".equals( option )) {
+                voltage = parseDistribution( option, value );
+            } else if ("delay".equals( option )) {
+                delay = parseDistribution( option, value );
+            } else if ("strength".equals( option )) {
+                strength = parseDistribution( option, value );
+            } else if ("output".equals( option )) {
+                String[] p = value.split( "," );
+                if (p.length != 2) Errors.fatal( "output " + value + " -- expected i,l" );
+                output = "output " + parseDouble( option, p[0] )
+                       + " " + parseDouble( option, p[1] );
+            } else if ("run".equals( option )) {
+                run = "forever".equals( value )
+                    ? "run"
+                    : "run " + parseDouble( option, value );
+            } else {
+                Errors.fatal( option + " -- what is that" );
+            }
+        }
+        if ((neurons < 1) || (layers < 1)) {
+            Errors.fatal( "neurons and layers may not be negative or zero" );
+        }
+        if (fan < 0) {
+            Errors.fatal( "fan " + fan + " -- may not be negative" );
+        }
+        if ("random".equals( topology ) && (fan > neurons)) {
+            Errors.fatal( "fan " + fan + " -- more than the neurons" );
+        }
+        random = new SplittableRandom( seed );
+        int digits = Math.max( 3, Integer.toString( neurons - 1 ).length() );
+        name = new char[digits + 1];
+        name[0] = 'N';
+    }
+
+    private static int parseInt( String option, String value ) {
+        try {
+            return Integer.parseInt( value );
+        } catch (NumberFormatException e) {
+            Errors.fatal( option + " " + value + " -- not an integer" );
+            return 0;
+        }
+    }
+
+    private static double parseDouble( String option, String value ) {
+        try {
+            return Double.parseDouble( value );
+        } catch (NumberFormatException e) {
+            Errors.fatal( option + " " + value + " -- not a number" );
+            return 0.0;
+        }
+    }
+
+    private static Distribution parseDistribution( String option, String value ) {
+        Distribution d = Distribution.parse( value );
+        if (d == null) Errors.fatal( option + " " + value + " -- not a distribution" );
+        return d;
+    }
+
+    /** Write the network
+     *  @param stream where to write it
+     */
+    void write( OutputStream stream ) throws IOException {
+        out = new BufferedWriter(
+            new OutputStreamWriter( stream, StandardCharsets.US_ASCII ), 1 << 16
+        );
+        for (int i = 0; i < neurons; i++) {
+            out.write( "neuron " );
+            writeName( i );
+            out.write( ' ' );
+            out.write( Float.toString( (float)threshold.sample( random ) ) );
+            out.write( ' ' );
+            out.write( Float.toString( (float)voltage.sample( random ) ) );
+            out.write( '\n' );
+        }
+        for (int i = 0; i < neurons; i++) {
+            final int anchor = i;
+            partners( i, (int j) -> synapse( fanIn ? j : anchor, fanIn ? anchor : j ) );
+        }
+        if (output != null) out.write( output + "\n" );
+        if (run != null) out.write( run + "\n" );
+        out.flush();
+    }
+
+    /** Write a synapse from neuron i to neuron j
+     */
+    private void synapse( int i, int j ) {
+        try {
+            out.write( "synapse - " );
+            writeName( i );
+            out.write( ' ' );
+            writeName( j );
+            out.write( ' ' );
+            double d = Math.max( 0.0, delay.sample( random ) );
+            out.write( Float.toString( (float)d ) );
+            out.write( ' ' );
+            out.write( Float.toString( (float)strength.sample( random ) ) );
+            out.write( '\n' );
+        } catch (IOException e) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private void writeName( int i ) throws IOException {
+        for (int k = name.length - 1; k > 0; k--) {
+            name[k] = (char)('0' + (i % 10));
+            i = i / 10;
+        }
+        out.write( name );
+    }
+
+    /** Give each neuron at the other end of the synapses of neuron i,
+     *  which are from i, or with fanin to i
+     *  @param i the neuron
+     *  @param each told each partner in turn
+     */
+    private void partners( int i, IntConsumer each ) {
+        if ("random".equals( topology )) {
+            // skip ahead by geometric gaps, so the work is in the synapses
+            double p = (double)fan / neurons;
+            if (p <= 0.0) return;
+            double log = Math.log( 1.0 - p );
+            long j = -1;
+            for (;;) {
+                j = (p >= 1.0)
+                  ? j + 1
+                  : j + 1 + (long)(Math.log( 1.0 - random.nextDouble() ) / log);
+                if (j >= neurons) return;
+                if (j != i) each.accept( (int)j );
+            }
+        } else if ("smallworld".equals( topology )) {
+            // neighbors i+1, i-1, i+2, i-2 and so on around the ring
+            for (int d = 0; d < fan; d++) {
+                long step = (d / 2) + 1;
+                long j = ((d & 1) == 0) ? i + step : i - step;
+                j = Math.floorMod( j, (long)neurons );
+                if (random.nextDouble() < rewire) j = random.nextInt( neurons );
+                each.accept( (int)j );
+            }
+        } else if ("scalefree".equals( topology )) {
+            // neuron j weighs (j+1) to the -a, by inverting its integral
+            double a = 1.0 / (exponent - 1.0);
+            double top = Math.pow( neurons + 1.0, 1.0 - a ) - 1.0;
+            for (int d = 0; d < fan; d++) {
+                double x = Math.pow( 1.0 + random.nextDouble() * top, 1.0 / (1.0 - a) ) - 1.0;
+                each.accept( (int)Math.min( neurons - 1, (long)x ) );
+            }
+        } else {
+            // layered; the last layer takes any neurons left over
+            int size = Math.max( 1, neurons / layers );
+            int layer = Math.min( i / size, layers - 1 );
+            int next = fanIn ? layer - 1 : layer + 1;
+            if ((next < 0) || (next >= layers)) return;
+            int from = next * size;
+            int to = (next == layers - 1) ? neurons : from + size;
+            if (from >= neurons) return;
+            for (int d = 0; d < fan; d++) {
+                each.accept( from + random.nextInt( to - from ) );
+            }
+        }
+    }
+
+    /** Main program, see above
+     */
+    public static void main( String[] args ) {
+        NetworkGenerator g = new NetworkGenerator( args );
+        try {
+            g.write( new FileOutputStream( FileDescriptor.out ) );
+        } catch (IOException | UncheckedIOException e) {
+            Errors.fatal( "cannot write: " + e.getMessage() );
+        }
+    }
+}
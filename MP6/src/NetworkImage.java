@@ -0,0 +1,372 @@
+// NetworkImage.java
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/** A neuron network saved in a binary file, to be reloaded without parsing
+ *  @version: October 16, 2026
+ *  @see NeuronNetwork
+ *  @see CompiledNetwork
+ *
+ *  The command {@code compile f} writes the network as declared so far,
+ *  with the current state of its neurons, to the file f, and
+ *  {@code load f} reads such a file into an empty network.  Loading maps
+ *  the file into memory with {@code FileChannel.map} and copies each
+ *  section straight into an array, so a large network loads in the time
+ *  it takes to copy it, and several processes loading the same file
+ *  share it through the page cache.  The neurons and synapses are then
+ *  created from the arrays, in declaration order, just as if they had
+ *  been read as text; and the arrays also form a {@link CompiledNetwork},
+ *  which the first compiled run uses instead of compiling again.
+ *
+ *  The file is little-endian.  It begins with the header
+ *  <PRE>
+ *  int magic, version, neurons N, synapses S, edges E, name bytes B
+ *  </PRE>
+ *  followed by these sections, each an array of ints or floats:
+ *  <PRE>
+ *  threshold[N], voltage[N], time[N]       neuron state
+ *  source[S]       source neuron of each synapse, or -1
+ *  target[S]       destination neuron of a primary synapse, ~s for a
+ *                  secondary synapse to synapse s, or NOWHERE
+ *  delay[S], strength[S]
+ *  offsets[N+1]    the edges of each neuron, see CompiledNetwork
+ *  edgeOf[S]       the edge of each synapse, or -1
+ *  nameLength[N+S] bytes in each name, or -1 for an unnamed synapse
+ *  names[B]        the names in UTF-8, one after another, padded to a
+ *                  multiple of 4 bytes
+ *  </PRE>
+ *  The version is changed whenever the layout changes, and files of
+ *  other versions are refused.  Every index in the file is checked once,
+ *  before anything is created, so a truncated or damaged image is
+ *  refused with a warning and leaves the network empty.  Since a mapping is at most 2 GB, so is
+ *  an image.
+ */
+class NetworkImage {
+
+    static final int MAGIC = 0x4E4E494D;        // "NNIM"
+    static final int VERSION = 1;
+    private static final int HEADER = 6 * 4;
+
+    /** Scan a {@code compile} command and write the image
+     *  @param sim the simulation whose network is written
+     *  @param sc the scanner, positioned just after the command
+     */
+    static void compile( Simulation sim, Tokenizer sc ) {
+        String file = sc.hasNext() ? sc.next() : null;
+        ScanSupport.lineEnd(
+            sc,
+            () -> "compile " + file
+        );
+        if (file == null) {
+            Errors.warning( "compile -- expected a file name" );
+            return;
+        }
+        try {
+            write( sim.network, Paths.get( file ) );
+        } catch (IOException e) {
+            Errors.warning( "compile " + file + " -- " + e.getMessage() );
+        }
+    }
+
+    /** Scan a {@code load} command and read the image
+     *  @param sim the simulation whose network is read into
+     *  @param sc the scanner, positioned just after the command
+     */
+    static void load( Simulation sim, Tokenizer sc ) {
+        String file = sc.hasNext() ? sc.next() : null;
+        ScanSupport.lineEnd(
+            sc,
+            () -> "load " + file
+        );
+        if (file == null) {
+            Errors.warning( "load -- expected a file name" );
+            return;
+        }
+        if (!sim.network.neuronIndex.isEmpty() || !sim.network.synapseIndex.isEmpty()) {
+            Errors.warning( "load " + file + " -- the network is not empty" );
+            return;
+        }
+        try {
+            read( sim, Paths.get( file ) );
+        } catch (IOException e) {
+            Errors.warning( "load " + file + " -- " + e.getMessage() );
+        }
+    }
+
+    /** Write the image of a network
+     *  @param net the network
+     *  @param path where to write it
+     */
+    static void write( NeuronNetwork net, Path path ) throws IOException {
+        CompiledNetwork c = CompiledNetwork.compile( net, new Decay( Decay.EXACT ) );
+        int n = c.neuronCount;
+        int s = net.synapseIndex.size();
+        int e = c.targets.length;
+
+        byte[][] names = new byte[n + s][];
+        int nameBytes = 0;
+        for (int i = 0; i < n; i++) {
+            names[i] = net.neuronIndex.get( i ).name.getBytes( StandardCharsets.UTF_8 );
+            nameBytes = nameBytes + names[i].length;
+        }
+        for (int i = 0; i < s; i++) {
+            String name = net.synapseIndex.get( i ).name;
+            if (name != null) {
+                names[n + i] = name.getBytes( StandardCharsets.UTF_8 );
+                nameBytes = nameBytes + names[n + i].length;
+            }
+        }
+        int padded = (nameBytes + 3) & ~3;
+        long size = HEADER + 4L * (3L * n + 5L * s + (n + 1) + (n + s)) + padded;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException( "network too large for an image" );
+        }
+
+        try (FileChannel ch = FileChannel.open(
+                 path,
+                 StandardOpenOption.CREATE, StandardOpenOption.READ,
+                 StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+             )) {
+            MappedByteBuffer b = ch.map( FileChannel.MapMode.READ_WRITE, 0, size );
+            b.order( ByteOrder.LITTLE_ENDIAN );
+            b.putInt( MAGIC ).putInt( VERSION ).putInt( n ).putInt( s );
+            b.putInt( e ).putInt( nameBytes );
+
+            b.asFloatBuffer().put( c.threshold );
+            skip( b, n );
+            b.asFloatBuffer().put( c.voltage );
+            skip( b, n );
+            b.asFloatBuffer().put( c.lastTime );
+            skip( b, n );
+
+            // the synapses, including those with no source and so no edge
+            for (Synapse y: net.synapseIndex) {
+                b.putInt( (y.source == null) ? -1 : y.source.id );
+            }
+            for (Synapse y: net.synapseIndex) {
+                b.putInt( targetOf( y ) );
+            }
+            for (Synapse y: net.synapseIndex) {
+                b.putFloat( y.delay );
+            }
+            for (Synapse y: net.synapseIndex) {
+                b.putFloat( y.strength );
+            }
+
+            b.asIntBuffer().put( c.offsets );
+            skip( b, n + 1 );
+            b.asIntBuffer().put( c.edgeOf );
+            skip( b, s );
+
+            for (byte[] name: names) {
+                b.putInt( (name == null) ? -1 : name.length );
+            }
+            for (byte[] name: names) {
+                if (name != null) b.put( name );
+            }
+            b.force();
+        }
+    }
+
+    /** Encode the destination of synapse y, as in the target section
+     */
+    private static int targetOf( Synapse y ) {
+        if (y instanceof PrimarySynapse) {
+            return ((PrimarySynapse)y).destination.id;
+        }
+        PrimarySynapse d = ((SecondarySynapse)y).destination;
+        return (d == null) ? CompiledNetwork.NOWHERE : ~d.id;
+    }
+
+    /** Move the position of b past count ints or floats
+     */
+    private static void skip( ByteBuffer b, int count ) {
+        b.position( b.position() + 4 * count );
+    }
+
+    /** Check every index in an image before anything is made from it
+     *  @throws IOException naming the first section found out of range
+     */
+    private static void check( CompiledNetwork c, int[] source, int[] target,
+                               int[] nameLength, int nameBytes )
+        throws IOException
+    {
+        int n = c.neuronCount;
+        int s = source.length;
+        int e = c.targets.length;
+
+        // the edges of each neuron follow those of the one before
+        if ((c.offsets[0] != 0) || (c.offsets[n] != e)) {
+            throw new IOException( "image is damaged -- offsets" );
+        }
+        for (int i = 0; i < n; i++) {
+            if (c.offsets[i] > c.offsets[i + 1]) {
+                throw new IOException( "image is damaged -- offsets" );
+            }
+        }
+
+        // each synapse with a source has an edge of its own, of that source
+        boolean[] used = new boolean[e];
+        for (int y = 0; y < s; y++) {
+            int from = source[y];
+            int edge = c.edgeOf[y];
+            if ((from < -1) || (from >= n)) {
+                throw new IOException( "image is damaged -- source of synapse " + y );
+            }
+            if (from < 0) {
+                if (edge != -1) {
+                    throw new IOException( "image is damaged -- edge of synapse " + y );
+                }
+            } else if ((edge < c.offsets[from]) || (edge >= c.offsets[from + 1])
+                   ||  used[edge]) {
+                throw new IOException( "image is damaged -- edge of synapse " + y );
+            } else {
+                used[edge] = true;
+            }
+        }
+        for (int i = 0; i < e; i++) {
+            if (!used[i]) throw new IOException( "image is damaged -- edge " + i );
+        }
+
+        // a secondary synapse refers to a synapse declared before it
+        for (int y = 0; y < s; y++) {
+            int t = target[y];
+            boolean ok;
+            if (t >= 0) {
+                ok = t < n;
+            } else if (t == CompiledNetwork.NOWHERE) {
+                ok = true;
+            } else {
+                ok = (~t < y)
+                  && ((target[~t] >= 0) || (target[~t] == CompiledNetwork.NOWHERE));
+            }
+            if (!ok) {
+                throw new IOException( "image is damaged -- target of synapse " + y );
+            }
+        }
+
+        // every neuron is named, and the names fill the name section
+        long total = 0;
+        for (int i = 0; i < n + s; i++) {
+            if ((nameLength[i] < ((i < n) ? 0 : -1)) || (total + nameLength[i] > nameBytes)) {
+                throw new IOException( "image is damaged -- names" );
+            }
+            if (nameLength[i] > 0) total = total + nameLength[i];
+        }
+        if (total != nameBytes) throw new IOException( "image is damaged -- names" );
+    }
+
+    /** Read an image into an empty network
+     *  @param sim the simulation, whose network is empty
+     *  @param path the image
+     */
+    static void read( Simulation sim, Path path ) throws IOException {
+        ByteBuffer b;
+        try (FileChannel ch = FileChannel.open( path, StandardOpenOption.READ )) {
+            if (ch.size() < HEADER) throw new IOException( "not a network image" );
+            b = ch.map( FileChannel.MapMode.READ_ONLY, 0, ch.size() );
+        }
+        b.order( ByteOrder.LITTLE_ENDIAN );
+        if (b.getInt() != MAGIC) throw new IOException( "not a network image" );
+        int version = b.getInt();
+        if (version != VERSION) {
+            throw new IOException( "image version " + version + ", expected " + VERSION );
+        }
+        int n = b.getInt();
+        int s = b.getInt();
+        int e = b.getInt();
+        int nameBytes = b.getInt();
+        long size = HEADER + 4L * (3L * n + 5L * s + (n + 1) + (n + s))
+                  + ((nameBytes + 3L) & ~3L);
+        if ((n < 0) || (s < 0) || (e < 0) || (nameBytes < 0) || (size != b.capacity())) {
+            throw new IOException( "image is damaged" );
+        }
+
+        // the engine arrays come straight from the file
+        CompiledNetwork c = new CompiledNetwork( n, e, s, sim.simulator.decay );
+        b.asFloatBuffer().get( c.threshold );
+        skip( b, n );
+        b.asFloatBuffer().get( c.voltage );
+        skip( b, n );
+        b.asFloatBuffer().get( c.lastTime );
+        skip( b, n );
+        int[] source = new int[s];
+        b.asIntBuffer().get( source );
+        skip( b, s );
+        int[] target = new int[s];
+        b.asIntBuffer().get( target );
+        skip( b, s );
+        float[] delay = new float[s];
+        b.asFloatBuffer().get( delay );
+        skip( b, s );
+        float[] strength = new float[s];
+        b.asFloatBuffer().get( strength );
+        skip( b, s );
+        b.asIntBuffer().get( c.offsets );
+        skip( b, n + 1 );
+        b.asIntBuffer().get( c.edgeOf );
+        skip( b, s );
+        int[] nameLength = new int[n + s];
+        b.asIntBuffer().get( nameLength );
+        skip( b, n + s );
+        byte[] nameText = new byte[nameBytes];
+        b.get( nameText );
+        check( c, source, target, nameLength, nameBytes );
+
+        for (int y = 0; y < s; y++) {
+            int edge = c.edgeOf[y];
+            if (edge < 0) continue;
+            int t = target[y];
+            if ((t < 0) && (t != CompiledNetwork.NOWHERE)) {
+                int p = c.edgeOf[~t];
+                t = (p < 0) ? CompiledNetwork.NOWHERE : ~p;
+            }
+            c.targets[edge] = t;
+            c.delays[edge] = delay[y];
+            c.strengths[edge] = strength[y];
+        }
+
+        // then the objects, from the arrays
+        NeuronNetwork net = sim.network;
+        int at = 0;
+        String[] names = new String[n + s];
+        for (int i = 0; i < n + s; i++) {
+            if (nameLength[i] >= 0) {
+                names[i] = new String( nameText, at, nameLength[i], StandardCharsets.UTF_8 );
+                at = at + nameLength[i];
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            net.neurons.add(
+                new Neuron( sim, names[i], c.threshold[i], c.voltage[i], c.lastTime[i] )
+            );
+        }
+        for (int y = 0; y < s; y++) {
+            int t = target[y];
+            Synapse syn;
+            if (t >= 0) {
+                syn = new PrimarySynapse( net.neuronIndex.get( t ) );
+            } else if (t == CompiledNetwork.NOWHERE) {
+                syn = new SecondarySynapse( null );
+            } else {
+                syn = new SecondarySynapse( net.synapseIndex.get( ~t ) );
+            }
+            syn.name = names[n + y];
+            syn.source = (source[y] < 0) ? null : net.neuronIndex.get( source[y] );
+            syn.delay = delay[y];
+            syn.strength = strength[y];
+            net.declare( syn );
+            if (syn.source != null) syn.source.synapses.add( syn );
+            net.synapses.add( syn );
+        }
+        net.loaded = c;
+    }
+}
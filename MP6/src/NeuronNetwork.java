@@ -1,11 +1,14 @@
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.PriorityQueue;
-import java.util.regex.Pattern;
-import java.util.Scanner;
+import java.nio.channels.Channels;
 import java.lang.Math;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /** mp6, SimulationOutput
  *  This program will print out reports of 
@@ -26,25 +29,72 @@ import java.util.List;
 
 class Errors {
     public static int errCount = 0;
+
+    // the simulation whose commands this thread is obeying, if any
+    private static final ThreadLocal <Simulation> current
+        = new ThreadLocal <Simulation> ();
+
     public static void fatal( String message ) {
         errCount++;
         System.err.println( "Fatal error: " + message );
         System.exit( 1 );
     }
+
+    /** Report an error
+     *  While a thread obeys the commands of a {@link Simulation}, the
+     *  message goes to that simulation's error stream, after its name,
+     *  and is counted there; otherwise it goes to {@code System.err}.
+     */
     public static void warning( String message ) {
-        errCount++;
-        System.err.println( "Error: " + message );
+        Simulation sim = current.get();
+        if (sim == null) {
+            errCount++;
+            System.err.println( "Error: " + message );
+        } else {
+            sim.errCount++;
+            sim.err.println(
+                "Error: " + ((sim.name != null) ? sim.name + ": " : "") + message
+            );
+        }
+    }
+
+    /** Send this thread's errors to a simulation, or to System.err if null
+     *  @return the simulation that had them before, to restore afterward
+     */
+    static Simulation reportTo( Simulation sim ) {
+        Simulation before = current.get();
+        if (sim == null) {
+            current.remove();
+        } else {
+            current.set( sim );
+        }
+        return before;
+    }
+
+    /** Wrap a task so that its errors go where this thread's go
+     *  For tasks that a simulation hands to other threads.
+     */
+    static <T> Callable <T> inherit( Callable <T> task ) {
+        Simulation sim = current.get();
+        return () -> {
+            Simulation before = reportTo( sim );
+            try {
+                return task.call();
+            } finally {
+                reportTo( before );
+            }
+        };
     }
 }
 
 // ScanSupport.java
 /** Input scanning support methods
  *  This bundle of static methods provides services that read input using
- *  a Java {@link Scanner}, and if the input does not meet the stated
+ *  a {@link Tokenizer}, and if the input does not meet the stated
  *  requirement, report that using a call to the {@code warning} method
  *  in {@link Errors}.
  *  @version 4/11/2016
- *  @see java.util.Scanner
+ *  @see Tokenizer
  *  @see Errors
  *
  *  This code is extracted from the April 6, 2016 version of NeuronNetwork.java,
@@ -70,7 +120,7 @@ class ScanSupport {
     }
 
     /** Force there to be a line end here, complain if not
-     *  @param sc  the {@link Scanner} from which the input text is
+     *  @param sc  the {@link Tokenizer} from which the input text is
      *             being scanned
      *  @param message  the {@link ErrorMessage} to use if the input text
      *             is not currently positioned at a line end.
@@ -81,7 +131,7 @@ class ScanSupport {
      *  (for example, string concatenations) are not done unless there
      *  is not a line end where one was expected.
      */
-    public static void lineEnd( Scanner sc, ErrorMessage message ) {
+    public static void lineEnd( Tokenizer sc, ErrorMessage message ) {
         String skip = sc.nextLine();
         if (!"".equals( skip )) {
             // Bug:  do we want to allow comments here
@@ -93,11 +143,8 @@ class ScanSupport {
         // Bug:  what if sc.nextLine() was illegal (illegal state)
     }
 
-    /* really private to nextName */
-    private static final Pattern name = Pattern.compile( "[A-Za-z]\\w*" );
-
     /** Get the next name, or complain if there isn't one
-     *  @param sc  the {@link Scanner} from which the input text is
+     *  @param sc  the {@link Tokenizer} from which the input text is
      *             being scanned
      *  @param message  the {@link ErrorMessage} to use if the input text
      *             is not currently positioned at a line end.
@@ -106,12 +153,11 @@ class ScanSupport {
      *  expression, for example: {@code NextName(sc,()->"Line:"+n);}
      *  See {@link lineEnd} for the reason a lambda expression is used here.
      *  Names are defined as a letter followed by any number of letters
-     *  or digits using Java's {@link Pattern} recognition mechanisms.
-     *  @see java.util.regex.Pattern
+     *  or digits, see {@code Tokenizer.hasNextName}.
      */
-    public static String nextName( Scanner sc, ErrorMessage message ) {
-        if (sc.hasNext( name )) {
-            return sc.next( name );
+    public static String nextName( Tokenizer sc, ErrorMessage message ) {
+        if (sc.hasNextName()) {
+            return sc.nextName();
         } else {
             Errors.warning(
                 message.myString() +
@@ -122,7 +168,7 @@ class ScanSupport {
     }
 
     /** Get the next int, or complain if there isn't one
-     *  @param sc  the {@link Scanner} from which the input text is
+     *  @param sc  the {@link Tokenizer} from which the input text is
      *             being scanned
      *  @param message  the {@link ErrorMessage} to use if the input text
      *             is not currently positioned at a line end.
@@ -131,7 +177,7 @@ class ScanSupport {
      *  expression, for example: {@code NextName(sc,()->"Line:"+n);}
      *  See {@link lineEnd} for the reason a lambda expression is used here.
      */
-    public static int nextInt( Scanner sc, ErrorMessage message ) {
+    public static int nextInt( Tokenizer sc, ErrorMessage message ) {
         if (sc.hasNextInt()) {
             return sc.nextInt();
         } else {
@@ -144,7 +190,7 @@ class ScanSupport {
     }
 
     /** Get the next float, or complain if there isn't one
-     *  @param sc  the {@link Scanner} from which the input text is
+     *  @param sc  the {@link Tokenizer} from which the input text is
      *             being scanned
      *  @param message  the {@link ErrorMessage} to use if the input text
      *             is not currently positioned at a line end.
@@ -153,7 +199,7 @@ class ScanSupport {
      *  expression, for example: {@code NextName(sc,()->"Line:"+n);}
      *  See {@link lineEnd} for the reason a lambda expression is used here.
      */
-    public static float nextFloat( Scanner sc, ErrorMessage message ) {
+    public static float nextFloat( Tokenizer sc, ErrorMessage message ) {
         if (sc.hasNextFloat()) {
             return sc.nextFloat();
         } else {
@@ -169,8 +215,12 @@ class ScanSupport {
 // Simulator.java
 /** Framework for discrete event simulation.
  *  @version: April 21, 2016
+ *  @see CalendarQueue
+ *  @see Simulation
  * 
  *  This code is based on the April 20, 2016 lecture notes.
+ *  Each {@link Simulation} has its own simulator, so nothing here is
+ *  shared between simulations except the constants.
  */
 class Simulator {
 
@@ -191,6 +241,15 @@ class Simulator {
             time = t;               // initializer (the only way to set time)
         }
 
+        /** Link to the next event in the same {@link CalendarQueue} bucket
+         */
+        Event next = null;
+
+        /** The last event of the run of equal times this event heads
+         *  in its {@link CalendarQueue} bucket, meaningful only in the head
+         */
+        Event last = null;
+
 	/** Each subclass must give a specific trigger method
 	 *  This method will be called when the event is triggered;
 	 *  the code of Trigger may refer to {@code time}, the event time.
@@ -198,31 +257,582 @@ class Simulator {
         abstract void trigger();    // what to do at that time
     }
 
-    private static PriorityQueue <Event> eventSet
-    = new PriorityQueue <Event> (
-        (Event e1, Event e2) -> Float.compare( e1.time, e2.time )
-    );
+    // the simulation this simulator belongs to
+    private final Simulation sim;
+
+    // pending events in time order; the calendar queue gives amortized
+    // constant time schedule and remove, where a heap would take log n
+    private final CalendarQueue eventSet = new CalendarQueue();
+
+    // pending neuron and synapse events kept as primitives, see usePrimitive
+    // (package visible so that the parallel engine can take them over)
+    final EventHeap primitiveSet = new EventHeap();
+
+    // kinds of primitive event, kept in bits 32-33 of the payload;
+    // the low 32 bits hold the id of the neuron, synapse or edge
+    static final long FIRE = 0L << 32;    // a neuron fires
+    static final long DELIVER = 1L << 32; // a synapse delivers
+    static final long EDGE = 2L << 32;    // a compiled edge delivers
+    static final long KIND = 3L << 32;    // mask for the kind
+
+    /** Bits 34 and up of a compiled payload hold its depth: the number of
+     *  events in the chain of equal-time events leading to it.  An event
+     *  caused by another at the same time is one deeper, so it sorts after
+     *  its cause and every event the cause could still precede; events
+     *  then leave the heap in (time, payload) order, and any engine that
+     *  takes a neuron's events in that order gets the same results.
+     */
+    static final int DEPTH_SHIFT = 34;
+
+    /** Depth bits for an event at time t caused by one at (now, cause)
+     *  @return the bits to or into the payload of the new event
+     */
+    static long depthAfter( float now, long cause, float t ) {
+        if (t != now) return 0L;
+        return ((cause >>> DEPTH_SHIFT) + 1) << DEPTH_SHIFT;
+    }
+
+    // the primitive event being dispatched, for depthAfter
+    private float nowTime = 0.0f;
+    private long nowPayload = 0L;
+
+    // compiled runs schedule edges straight into primitiveSet
+    private final CompiledNetwork.EdgeScheduler toPrimitiveSet
+        = (float t, int e) -> scheduleEdge( t, e );
+
+    /** Create a simulator with no pending events
+     *  @param sim the simulation it belongs to
+     */
+    Simulator( Simulation sim ) {
+        this.sim = sim;
+    }
+
+    /** When true, neuron firings and synapse deliveries are scheduled as
+     *  primitive events that allocate no objects; when false, each is an
+     *  anonymous {@code Event} in the calendar queue.  Either way the two
+     *  kinds of event are simulated the same, and {@code run} takes events
+     *  from both sets, so this may be changed at any time.
+     */
+    boolean usePrimitive = false;
+
+    /** When not null, synapse deliveries are rounded up to the ring's tick
+     *  and go into the ring instead of either event set.
+     */
+    DeliveryRing ring = null;
+
+    /** When true, {@code run} compiles the network into arrays and
+     *  simulates on those, using primitive events.
+     */
+    boolean useCompiled = false;
+
+    /** The compiled network while a compiled run is in progress,
+     *  otherwise null
+     */
+    CompiledNetwork compiled = null;
+
+    /** Number of threads for a compiled run; more than one selects the
+     *  {@link ParallelEngine}, or the {@link TimeWarpEngine} if
+     *  {@code optimistic} is set
+     */
+    int workers = 1;
+    boolean optimistic = false;
+
+    /** When positive, a compiled run uses the {@link ClockEngine} with
+     *  this time step instead of taking events one at a time
+     */
+    float clockStep = 0.0f;
+
+    /** How neuron voltages are decayed, see the decay command
+     */
+    Decay decay = new Decay( Decay.EXACT );
+
+    /** When true, primitive events are carried out in batches, and all
+     *  the input reaching a neuron in one batch is summed and applied
+     *  with one kick, see {@code dispatchBatch}
+     */
+    boolean coalesce = false;
+
+    // the batch being carried out, and the sums of its input
+    private long[] batch = new long[64];
+    private final InputAccumulator accumulator = new InputAccumulator();
+
+    /** No event later than the horizon is ever simulated.  Such events
+     *  are set aside when they are scheduled: kept in the spill sets if
+     *  {@code spill} is true, so raising the horizon brings them back,
+     *  and otherwise dropped and counted in {@code dropped}.
+     */
+    float horizon = Float.POSITIVE_INFINITY;
+    boolean spill = false;
+    long dropped = 0;
+    private final EventHeap spilledPrimitives = new EventHeap();
+    private final ArrayList <Event> spilledEvents = new ArrayList <Event> ();
+
+    // the end of the run in progress, see runUntil
+    private float until = Float.POSITIVE_INFINITY;
+
+    // the compiled network of the last paused run, for its edge numbers
+    private CompiledNetwork paused = null;
+
+    // guards runs against runaway excitation, or null, see Watchdog
+    Watchdog watchdog = null;
+
+    // records every firing, or null, see SpikeRaster
+    SpikeRaster raster = null;
+
+    // the intervals between firings, or null, see FiringStats
+    FiringStats stats = null;
+
+    // the simulation's spike stream while anybody subscribes, see SpikeStream
+    SpikeStream stream = null;
+
+    // the time of the event being simulated by the sequential loop
+    private float now = 0.0f;
 
     /** Called to trigger the event at the given time
      *  @param e, the event to be triggered, with its time.
      */
-    public static void schedule( Event e ) {
+    public void schedule( Event e ) {
+        if (e.time > horizon) {
+            if (spill) {
+                spilledEvents.add( e );
+            } else {
+                dropped = dropped + 1;
+            }
+            return;
+        }
         eventSet.add( e );
     }
 
+    /** Add primitive event p at time t, or set it aside if beyond the horizon
+     */
+    void schedulePrimitive( float t, long p ) {
+        if (t > horizon) {
+            if (spill) {
+                spilledPrimitives.add( t, p );
+            } else {
+                dropped = dropped + 1;
+            }
+            return;
+        }
+        primitiveSet.add( t, p );
+    }
+
+    /** Set a new horizon, bringing back spilled events within it
+     *  @param h the new horizon, infinity for none
+     *  @param spill whether to keep events beyond it from now on
+     */
+    void setHorizon( float h, boolean spill ) {
+        horizon = h;
+        this.spill = spill;
+        while (!spilledPrimitives.isEmpty() && (spilledPrimitives.topTime() <= h)) {
+            float t = spilledPrimitives.topTime();
+            long p = spilledPrimitives.topPayload();
+            spilledPrimitives.removeTop();
+            if ((ring != null) && ((p & KIND) == DELIVER)) {
+                ring.add( t, sim.network.synapseIndex.get( (int)p ) );
+            } else {
+                primitiveSet.add( t, p );
+            }
+        }
+        ArrayList <Event> kept = new ArrayList <Event> ();
+        for (Event e: spilledEvents) {
+            if (e.time <= h) {
+                eventSet.add( e );
+            } else {
+                kept.add( e );
+            }
+        }
+        spilledEvents.clear();
+        spilledEvents.addAll( kept );
+    }
+
+    /** Schedule neuron n to fire at time t
+     *  @param t, the time at which n fires
+     *  @param n, the neuron
+     */
+    public void scheduleFire( float t, Neuron n ) {
+        if (watchdog != null) watchdog.scheduled( now, n.id, this );
+        if (usePrimitive) {
+            schedulePrimitive( t, FIRE | n.id );
+        } else {
+            schedule(
+                new Event( t ) {
+                    void trigger() {
+                        if (compiled != null) {
+                            dispatch( time, FIRE | n.id );
+                        } else {
+                            n.fire( time );
+                        }
+                    }
+                }
+            );
+        }
+    }
+
+    /** Schedule synapse s to deliver its output at time t
+     *  @param t, the time at which s delivers
+     *  @param s, the synapse
+     */
+    public void scheduleDelivery( float t, Synapse s ) {
+        if (watchdog != null) {
+            Neuron d = (s instanceof PrimarySynapse)
+                ? ((PrimarySynapse)s).destination : null;
+            watchdog.scheduled( now, (d == null) ? -1 : d.id, this );
+        }
+        if ((ring != null) && (t <= horizon)) {
+            ring.add( t, s );
+        } else if (usePrimitive || (ring != null)) {
+            schedulePrimitive( t, DELIVER | s.id );
+        } else {
+            schedule(
+                new Event( t ) {
+                    void trigger() {
+                        if (compiled != null) {
+                            dispatch( time, DELIVER | s.id );
+                        } else {
+                            s.fire( time );
+                        }
+                    }
+                }
+            );
+        }
+    }
+
+    /** Schedule edge e of the compiled network to deliver at time t
+     *  @param t, the time at which e delivers
+     *  @param e, the edge
+     */
+    void scheduleEdge( float t, int e ) {
+        if (watchdog != null) {
+            watchdog.scheduled( now, Math.max( compiled.targets[e], -1 ), this );
+        }
+        schedulePrimitive( t, depthAfter( nowTime, nowPayload, t ) | EDGE | e );
+    }
+
+    /** How many events are pending, in all the event sets
+     */
+    long pending() {
+        long n = (long)primitiveSet.size() + eventSet.size();
+        if (ring != null) n = n + ring.size();
+        return n;
+    }
+
+    /** Time of the next {@code Event} of the run in progress
+     *  @return the time, or infinity if there is none before the end
+     */
+    float nextEventTime() {
+        Event e = eventSet.peek();
+        return ((e == null) || (e.time > until)) ? Float.POSITIVE_INFINITY : e.time;
+    }
+
+    /** The time of the last events the run in progress may simulate
+     *  Engines leave later events pending and give them back with
+     *  {@code giveBack} when they return.
+     */
+    float stopTime() {
+        return Math.min( until, horizon );
+    }
+
+    /** Return a primitive event that an engine did not simulate
+     *  @param t the time of the event
+     *  @param p its payload, for the compiled network of this run
+     */
+    void giveBack( float t, long p ) {
+        schedulePrimitive( t, p );
+    }
+
+    /** Remove the next {@code Event} and trigger it; there must be one
+     */
+    void triggerNextEvent() {
+        eventSet.remove().trigger();
+    }
+
     /** Run the discrete event simulation
      *  Prior to calling {@code run}, the user should {@code schedule}
      *  some initial {@code Event}s.  The simulation will run until either
      *  no events remain or until some event terminates the program.
+     *  When events have the same time, primitive events go first, then
+     *  deliveries from the ring, then {@code Event}s.
+     *  If {@code useCompiled} is set, the network is compiled first and
+     *  its final state is copied back to the network objects afterward.
+     */
+    void run() {
+        simulate( Float.POSITIVE_INFINITY, Long.MAX_VALUE );
+    }
+
+    /** Run the simulation up to a given time, and pause
+     *  Every event at or before time t is simulated; later events stay
+     *  pending, so a later call to {@code run}, {@code runUntil} or
+     *  {@code step} carries on exactly where this one left off.
+     *  @param t the time to run to
+     */
+    void runUntil( float t ) {
+        simulate( t, Long.MAX_VALUE );
+    }
+
+    /** Simulate the next n events, and pause
+     *  This always simulates one event at a time, with the compiled
+     *  network if the engine uses one, but never with the parallel, time
+     *  warp or clock engines.  A batch of coalesced events counts as one.
+     *  @param n the number of events
+     */
+    void step( long n ) {
+        simulate( Float.POSITIVE_INFINITY, n );
+    }
+
+    /** Simulate events up to the given end time, but no more than n of them
+     */
+    private void simulate( float end, long n ) {
+        until = end;
+        resume();
+        if (watchdog != null) watchdog.begin( sim.network.neuronIndex.size() );
+        stream = sim.spikes.listening() ? sim.spikes : null;
+
+        // a freshly loaded image is already compiled, see NetworkImage
+        CompiledNetwork loaded = sim.network.loaded;
+        sim.network.loaded = null;
+        if (useCompiled) {
+            if ((loaded != null) && (loaded.decay == decay)) {
+                compiled = loaded;
+            } else {
+                compiled = CompiledNetwork.compile( sim.network, decay );
+            }
+            compiled.raster = raster;
+            compiled.stats = stats;
+            compiled.stream = stream;
+            if (n != Long.MAX_VALUE) {
+                // step through the events one at a time below
+            } else if (watchdog != null) {
+                // it counts the events scheduled here, so sequentially below
+            } else if ((clockStep > 0.0f) && ClockEngine.fits( compiled, clockStep )) {
+                new ClockEngine( this, compiled, clockStep ).run();
+            } else if ((raster != null) || (stats != null) || (stream != null)) {
+                // these need firings in time order, so sequentially below
+            } else if (optimistic) {
+                new TimeWarpEngine( this, compiled, workers ).run();
+            } else if (workers > 1) {
+                new ParallelEngine( this, compiled, workers ).run();
+            }
+        }
+        for (long i = 0; i < n; i++) {
+            Event e = eventSet.peek();
+            float eTime = (e == null) ? Float.POSITIVE_INFINITY : e.time;
+            boolean ringed = (ring != null) && !ring.isEmpty();
+            float rTime = ringed ? ring.nextTime() : Float.POSITIVE_INFINITY;
+            float pTime = primitiveSet.isEmpty()
+                ? Float.POSITIVE_INFINITY : primitiveSet.topTime();
+            float next = Math.min( pTime, Math.min( rTime, eTime ) );
+            if ((next > end) || (next == Float.POSITIVE_INFINITY)) {
+                break;
+            }
+            if ((watchdog != null) && watchdog.tripped()) {
+                break;
+            }
+            now = next;
+            if ( (!primitiveSet.isEmpty())
+            &&   (pTime <= rTime)
+            &&   (pTime <= eTime) ) {
+                float t = primitiveSet.topTime();
+                long p = primitiveSet.topPayload();
+                primitiveSet.removeTop();
+                if (coalesce) {
+                    dispatchBatch( t, p );
+                } else {
+                    dispatch( t, p );
+                }
+            } else if (ringed && (rTime <= eTime)) {
+                ring.drain();
+            } else {
+                eventSet.remove();
+                e.trigger();
+            }
+        }
+        if (compiled != null) {
+            compiled.writeBack( sim.network );
+            paused = compiled;
+            compiled = null;
+        }
+        if (watchdog != null) watchdog.end();
+        until = Float.POSITIVE_INFINITY;
+    }
+
+    /** Make events left pending by a paused compiled run fit this run
+     *  Edges are numbered by the compiled network, so if this run will
+     *  not be compiled, or the network has grown since, pending edge
+     *  deliveries are changed to deliveries by their synapses.
+     */
+    private void resume() {
+        if (paused == null) return;
+        NeuronNetwork net = sim.network;
+        if ( (!useCompiled)
+        ||   (paused.neuronCount != net.neuronIndex.size())
+        ||   (paused.edgeOf.length != net.synapseIndex.size()) ) {
+            int[] synapseOf = new int[paused.targets.length];
+            for (int s = 0; s < paused.edgeOf.length; s++) {
+                if (paused.edgeOf[s] >= 0) synapseOf[paused.edgeOf[s]] = s;
+            }
+            renumber( primitiveSet, synapseOf );
+            renumber( spilledPrimitives, synapseOf );
+        }
+        paused = null;
+    }
+
+    /** Change the edge deliveries in h to deliveries by synapseOf[edge]
+     */
+    private static void renumber( EventHeap h, int[] synapseOf ) {
+        int n = h.size();
+        float[] times = new float[n];
+        long[] payloads = new long[n];
+        for (int i = 0; i < n; i++) {
+            times[i] = h.topTime();
+            payloads[i] = h.topPayload();
+            h.removeTop();
+        }
+        for (int i = 0; i < n; i++) {
+            long p = payloads[i];
+            if ((p & KIND) == EDGE) {
+                p = (p & (-1L << DEPTH_SHIFT)) | DELIVER | synapseOf[(int)p];
+            }
+            h.add( times[i], p );
+        }
+    }
+
+    /** Carry out the batch of primitive events that begins with payload p
+     *  at time t, when coalescing
+     *  A batch is the event just removed and every pending primitive
+     *  event with the same time and the same depth; events caused by the
+     *  batch are in later batches, so every batch is complete when it is
+     *  taken.  The firings in the batch happen first, then deliveries by
+     *  secondary synapses adjust strengths, then the strengths of the
+     *  primary synapses delivering to each neuron are added up, and each
+     *  neuron gets one kick with the total: its voltage is decayed once,
+     *  the sum added, and its threshold checked once, so it fires at most
+     *  once per batch however many inputs arrive together.  Without
+     *  coalescing, each input is a separate kick, and a neuron can fire
+     *  more than once at one instant, or, as inputs are added one at a
+     *  time, fire on a partial sum that later inputs would have cancelled.
+     *  This is how a {@link DeliveryRing} always treats each tick.
+     */
+    private void dispatchBatch( float t, long p ) {
+        int n = 0;
+        batch[n++] = p;
+        long depth = p >>> DEPTH_SHIFT;
+        while (!primitiveSet.isEmpty()
+        &&     (primitiveSet.topTime() == t)
+        &&     ((primitiveSet.topPayload() >>> DEPTH_SHIFT) == depth)) {
+            if (n == batch.length) batch = Arrays.copyOf( batch, n * 2 );
+            batch[n++] = primitiveSet.topPayload();
+            primitiveSet.removeTop();
+        }
+        nowTime = t;
+        nowPayload = p;
+
+        // payloads sort by kind, so the firings come first
+        int i = 0;
+        while ((i < n) && ((batch[i] & KIND) == FIRE)) {
+            dispatch( t, batch[i] );
+            nowPayload = p;
+            i = i + 1;
+        }
+
+        // secondary synapses adjust strengths before any are summed
+        NeuronNetwork net = sim.network;
+        for (int j = i; j < n; j++) {
+            int id = (int)batch[j];
+            if (compiled != null) {
+                int e = edgeOf( batch[j] );
+                if (e < 0) continue;
+                int target = compiled.targets[e];
+                if ((target < 0) && (target != CompiledNetwork.NOWHERE)) {
+                    compiled.strengths[~target] += compiled.strengths[e];
+                }
+            } else {
+                Synapse s = net.synapseIndex.get( id );
+                if (s instanceof SecondarySynapse) s.fire( t );
+            }
+        }
+
+        accumulator.begin( net.neuronIndex.size() );
+        for (int j = i; j < n; j++) {
+            int id = (int)batch[j];
+            if (compiled != null) {
+                int e = edgeOf( batch[j] );
+                if ((e >= 0) && (compiled.targets[e] >= 0)) {
+                    accumulator.add( compiled.targets[e], compiled.strengths[e] );
+                }
+            } else {
+                Synapse s = net.synapseIndex.get( id );
+                if (s instanceof PrimarySynapse) {
+                    Neuron d = ((PrimarySynapse)s).destination;
+                    if (d != null) accumulator.add( d.id, s.strength );
+                }
+            }
+        }
+        for (int j = 0; j < accumulator.count(); j++) {
+            int d = accumulator.neuron( j );
+            if (compiled != null) {
+                compiled.kick( d, t, accumulator.input( d ), toPrimitiveSet );
+            } else {
+                net.neuronIndex.get( d ).kick( t, accumulator.input( d ) );
+            }
+        }
+    }
+
+    /** The compiled edge of a delivery, or -1 if it has none
+     */
+    private int edgeOf( long p ) {
+        int id = (int)p;
+        return ((p & KIND) == EDGE) ? id : compiled.edgeOf[id];
+    }
+
+    /** Carry out the primitive event with payload p at time t
+     *  Events for neuron and synapse objects go to the compiled network
+     *  if there is one, so they may be scheduled before compiling; this
+     *  is also how {@code Event}s scheduled for them before an
+     *  {@code engine compiled} command are carried out.
      */
-    static void run() {
-        while (!eventSet.isEmpty()) {
-            Event e = eventSet.remove();
-            e.trigger();
+    private void dispatch( float t, long p ) {
+        long kind = p & KIND;
+        int id = (int)p;
+        nowTime = t;
+        nowPayload = p;
+        if (kind == EDGE) {
+            compiled.deliver( id, t, toPrimitiveSet );
+        } else if (kind == FIRE) {
+            if (compiled != null) {
+                compiled.fire( id, t, toPrimitiveSet );
+            } else {
+                sim.network.neuronIndex.get( id ).fire( t );
+            }
+        } else {
+            if (compiled != null) {
+                int e = compiled.edgeOf[id];
+                if (e >= 0) compiled.deliver( e, t, toPrimitiveSet );
+            } else {
+                sim.network.synapseIndex.get( id ).fire( t );
+            }
         }
     }
 }
 
+// NeuronOrSynapse.java
+/** Neurons and synapses share one namespace
+ *  @version: October 16, 2026
+ *  @see Neuron
+ *  @see Synapse
+ *  @see NeuronNetwork
+ *
+ *  Every named neuron or synapse is entered under its name in one table,
+ *  see {@code NeuronNetwork.declare}, which also gives it an id.  Neurons
+ *  and synapses are numbered separately, each densely from zero in order
+ *  of declaration, so ids can index arrays of per-neuron or per-synapse
+ *  data.
+ */
+abstract class NeuronOrSynapse {
+    String name = null; // name, or null for an unnamed synapse
+    int id;             // index among neurons, or among synapses
+}
+
 // Neuron.java
 /** Neurons, joined by synapses, are the active components of a neuron network.
  *  @version: April 21, 2016
@@ -236,22 +846,25 @@ class Simulator {
  *  alternative simulation framework discussed on April 20.
  */
 
-class Neuron {
-    String name;                // name of this neuron
-    private int fireCount = 0;  // number of times this neuron fired
+class Neuron extends NeuronOrSynapse {
+    final Simulation sim;       // the simulation this neuron belongs to
+    int fireCount = 0;          // number of times this neuron fired
 
     public static class IllegalNameEx extends Exception {}
 
     // default values below for errors with incompletely defined neurons
-    private float threshold = 99.99f;// voltage at which the neuron fires
-    private float voltage = 99.99f; // voltage at the given time
-    private float time = 0.0f;  // (see above)
+    // (package visible so that CompiledNetwork can copy them)
+    float threshold = 99.99f;   // voltage at which the neuron fires
+    float voltage = 99.99f;     // voltage at the given time
+    float time = 0.0f;          // (see above)
 
     // the outputs of this neuron
     public LinkedList <Synapse> synapses = new LinkedList<Synapse>();
 
     // initializer
-    public Neuron( Scanner sc ) throws IllegalNameEx {
+    public Neuron( Simulation sim, Tokenizer sc ) throws IllegalNameEx {
+        this.sim = sim;
+
         // scan and process one neuron
         String name = ScanSupport.nextName(
             sc,
@@ -262,8 +875,7 @@ class Neuron {
             throw new IllegalNameEx ();
         }
         this.name = name;
-        if ( (NeuronNetwork.findNeuron( name ) != null)
-        ||   (NeuronNetwork.findSynapse( name ) != null) ) {
+        if (sim.network.findNeuronOrSynapse( name ) != null) {
             Errors.warning(
                 "Neuron " + name +
                 " -- duplicate declaration"
@@ -271,6 +883,7 @@ class Neuron {
             sc.nextLine();
             throw new IllegalNameEx();
         }
+        sim.network.declare( this );
         threshold = ScanSupport.nextFloat(
             sc,
             () -> Neuron.this.toString()
@@ -282,13 +895,7 @@ class Neuron {
 
         //  if voltage exceeds threshold (non-inclusive) the neuron fires
         if (voltage > threshold){
-            Simulator.schedule(
-                new Simulator.Event( 0.0f ) {
-                    void trigger() {
-                        Neuron.this.fire( time );
-                    }
-                }
-            );
+            sim.simulator.scheduleFire( 0.0f, this );
         }
 
         ScanSupport.lineEnd(
@@ -297,37 +904,71 @@ class Neuron {
         );
     }
 
+    /** Create a neuron read by a {@link ParallelLoader}, not yet declared
+     *  The loader declares it later, in the order of the file.
+     */
+    Neuron( Simulation sim, String name, float threshold, float voltage ) {
+        this.sim = sim;
+        this.name = name;
+        this.threshold = threshold;
+        this.voltage = voltage;
+    }
+
+    /** Create a neuron with the given state, read from a network image
+     *  The caller must already have checked that the name is not in use.
+     */
+    Neuron( Simulation sim, String name,
+            float threshold, float voltage, float time ) {
+        this.sim = sim;
+        this.name = name;
+        sim.network.declare( this );
+        this.threshold = threshold;
+        this.voltage = voltage;
+        this.time = time;
+
+        //  if voltage exceeds threshold (non-inclusive) the neuron fires
+        if (voltage > threshold){
+            sim.simulator.scheduleFire( 0.0f, this );
+        }
+    }
+
     // simulation methods
     void fire(float time) {
         fireCount = fireCount + 1;
+        SpikeRaster raster = sim.simulator.raster;
+        if (raster != null) raster.spike( id, time );
+        FiringStats stats = sim.simulator.stats;
+        if (stats != null) stats.spike( id, time );
+        SpikeStream stream = sim.simulator.stream;
+        if (stream != null) stream.fire( id, time );
         this.voltage = 0.0f;
         for(Synapse s: synapses) {
-            Simulator.schedule(
-                new Simulator.Event( time + s.delay ) {
-                    void trigger() {
-                        s.fire( time );
-                    }
-                }
-            );
+            sim.simulator.scheduleDelivery( time + s.delay, s );
         }
     }
 
     /** This method is called by incoming synapses.
      */
     void kick(float time, float strength) {
+        SpikeStream stream = sim.simulator.stream;
+        if (stream != null) stream.deliver( id, time, strength );
         float v1 = voltage;
         // v2 = v1 e^(t1–t2) + s
-        voltage = (v1 * (float)Math.exp( this.time - time )) + strength;
+        voltage = (v1 * sim.simulator.decay.exp( this.time - time )) + strength;
         this.time = time;
         if( voltage > threshold) this.fire( time );
     }
 
-    /** Get the current count and reset the count
+    /** Get the number of times this neuron has fired, without resetting it
+     *  Each report keeps the count it last saw, see {@link SimulationOutput}.
      */
-    int getCount() {
-        int r = fireCount;
-        fireCount = 0;
-        return r;
+    int fired() {
+        CompiledNetwork c = sim.simulator.compiled;
+        if (c != null) {
+            // during a compiled run the count lives in the arrays
+            return c.fireCount[id];
+        }
+        return fireCount;
     }
 
     // other methods
@@ -358,20 +999,18 @@ class Neuron {
  *  which, in turn was based on the non-alternative solution to MP3,
  *  as well as a simulation framework from the March 11 lecture notes.
  */
-abstract class Synapse {
+abstract class Synapse extends NeuronOrSynapse {
     // default values below for errors with incompletely defined synapses
     Neuron source;          // source for this synapse
     Float delay = 99.99f;
     Float strength = 99.99f;
-    String name = null;     // name of this synapse, if it has one
 
     public static class IllegalNameEx extends Exception {}
 
-    // really private to Synapse initializer
-    private static final Pattern noName = Pattern.compile( "-" );
-
     // generic initializer
-    static Synapse newSynapse( Scanner sc ) throws IllegalNameEx {
+    static Synapse newSynapse( Simulation sim, Tokenizer sc )
+        throws IllegalNameEx
+    {
         // proxies for fields until we know the type of this synapse
         String myName = null;
         Neuron mySource = null;
@@ -384,8 +1023,8 @@ abstract class Synapse {
         Synapse mySynapse = null;
         
         // scan and process one synapse
-        if (sc.hasNext( noName )) { // unnamed synapse
-            sc.next( noName );
+        if (sc.hasNext( "-" )) { // unnamed synapse
+            sc.next();
         } else { // named synapse, process the name
             myName = ScanSupport.nextName(
                 sc,
@@ -396,8 +1035,7 @@ abstract class Synapse {
                 sc.nextLine();
                 throw new IllegalNameEx ();
             }
-            if ((NeuronNetwork.findNeuron( myName ) != null)
-            ||  (NeuronNetwork.findSynapse( myName ) != null)) {
+            if (sim.network.findNeuronOrSynapse( myName ) != null) {
                 Errors.warning(
                     "Synapse " + myName +
                     " -- duplicate declaration"
@@ -428,10 +1066,10 @@ abstract class Synapse {
                 " ???"
             )
         );
-        mySource = NeuronNetwork.findNeuron( sourceName );
-        myPrimaryDest = NeuronNetwork.findNeuron( dstName );
+        mySource = sim.network.findNeuron( sourceName );
+        myPrimaryDest = sim.network.findNeuron( dstName );
         if (myPrimaryDest == null) {
-            mySecondaryDest = NeuronNetwork.findSynapse( dstName );
+            mySecondaryDest = sim.network.findSynapse( dstName );
             mySynapse = new SecondarySynapse( mySecondaryDest );
         } else {
             mySynapse = new PrimarySynapse( myPrimaryDest );
@@ -442,6 +1080,7 @@ abstract class Synapse {
 
         finalSynapse.name = finalName;
         finalSynapse.source = mySource;
+        sim.network.declare( finalSynapse );
     
         finalSynapse.delay = ScanSupport.nextFloat(
             sc,
@@ -601,112 +1240,488 @@ class SecondarySynapse extends Synapse {
  */
 public class NeuronNetwork {
 
+    // the simulation this network belongs to
+    private final Simulation sim;
+
     // the sets of all neurons and synapses
-    static LinkedList <Neuron> neurons
+    final LinkedList <Neuron> neurons
         = new LinkedList <Neuron> ();
-    static LinkedList <Synapse> synapses
+    final LinkedList <Synapse> synapses
         = new LinkedList <Synapse> ();
 
-    /** Look up s in neurons, find that Neuron if it exists
-     *  return null if not.
+    // the same neurons and synapses indexed by their id fields
+    final ArrayList <Neuron> neuronIndex
+        = new ArrayList <Neuron> ();
+    final ArrayList <Synapse> synapseIndex
+        = new ArrayList <Synapse> ();
+
+    // every named neuron and synapse, by name, see NeuronOrSynapse
+    private HashMap <String, NeuronOrSynapse> names
+        = new HashMap <String, NeuronOrSynapse> ();
+
+    // the network as compiled by NetworkImage.read, until it changes
+    CompiledNetwork loaded = null;
+
+    /** Create an empty network
+     *  @param sim the simulation it belongs to
      */
-    public static Neuron findNeuron( String s ) {
-        /* special case added because scan-support can return null */
-        if (s == null) return null;
+    NeuronNetwork( Simulation sim ) {
+        this.sim = sim;
+    }
 
-        /* search the neuron list */
-        for (Neuron n: neurons) {
-            if (n.name.equals(s)) {
-                return n;
-            }
+    /** Make room for the given numbers of neurons and synapses to come,
+     *  so declaring them never grows the tables one step at a time
+     */
+    void expect( int moreNeurons, int moreSynapses ) {
+        neuronIndex.ensureCapacity( neuronIndex.size() + moreNeurons );
+        synapseIndex.ensureCapacity( synapseIndex.size() + moreSynapses );
+        long want = (long)names.size() + moreNeurons + moreSynapses;
+        if (want > names.size() * 2L) {
+            HashMap <String, NeuronOrSynapse> bigger
+                = new HashMap <String, NeuronOrSynapse> (
+                      (int)Math.min( Integer.MAX_VALUE / 2, want * 4 / 3 + 1 )
+                  );
+            bigger.putAll( names );
+            names = bigger;
         }
-        return null;
     }
 
-    /** Look up s in synapses, find that Synapse if it exists
-     *  return null if not.
+    /** Enter a newly declared neuron in the name table and give it an id
+     *  The caller must already have checked that the name is not in use.
+     */
+    void declare( Neuron n ) {
+        loaded = null;
+        n.id = neuronIndex.size();
+        neuronIndex.add( n );
+        names.put( n.name, n );
+    }
+
+    /** Give a newly declared synapse an id, and enter it in the name table
+     *  if it has a name; the caller must have checked the name is not in use.
+     */
+    void declare( Synapse s ) {
+        loaded = null;
+        s.id = synapseIndex.size();
+        synapseIndex.add( s );
+        if (s.name != null) names.put( s.name, s );
+    }
+
+    /** Look up s in the name table, find that Neuron or Synapse
+     *  if it exists, return null if not.
      */
-    public static Synapse findSynapse( String s ) {
+    public NeuronOrSynapse findNeuronOrSynapse( String s ) {
         /* special case added because scan-support can return null */
         if (s == null) return null;
+        return names.get( s );
+    }
 
-        /* search the synapse list */
-        for (Synapse sy: synapses) {
-            if ((sy.name != null) && (sy.name.equals(s))) {
-                return sy;
-            }
-        }
-        return null;
+    /** Look up s in neurons, find that Neuron if it exists
+     *  return null if not.
+     */
+    public Neuron findNeuron( String s ) {
+        NeuronOrSynapse n = findNeuronOrSynapse( s );
+        return (n instanceof Neuron) ? (Neuron)n : null;
+    }
+
+    /** Look up s in synapses, find that Synapse if it exists
+     *  return null if not.
+     */
+    public Synapse findSynapse( String s ) {
+        NeuronOrSynapse sy = findNeuronOrSynapse( s );
+        return (sy instanceof Synapse) ? (Synapse)sy : null;
     }
 
     /** Initialize the neuron network by scanning its description
+     *  and obeying any commands in it, until the end of the input or
+     *  a {@code quit} command.
      */
-    static void initializeNetwork( Scanner sc ) {
+    void initializeNetwork( Tokenizer sc ) {
         while (sc.hasNext()) {
             String command = sc.next();
-            if ("neuron".equals( command )) {
-                try {
-                    neurons.add( new Neuron( sc ) );
-                } 
-                catch (Neuron.IllegalNameEx e) {}
+            if (!obey( command, sc, true )) return;
+            if (!"neuron".equals( command ) && !"synapse".equals( command )) {
+                // what a command prints shows now, not at the next run
+                sim.out.flush();
+            }
+        }
+    }
+
+    /** Obey one command
+     *  @param command the command
+     *  @param sc the scanner, positioned just after the command
+     *  @param neurons false to skip neuron declarations, which a
+     *         {@link ParallelLoader} has already made
+     *  @return false if the command was {@code quit}
+     */
+    boolean obey( String command, Tokenizer sc, boolean neurons ) {
+        if ("neuron".equals( command ) && !neurons) {
+            sc.nextLine();
+        }
+        else if ("neuron".equals( command )) {
+            try {
+                this.neurons.add( new Neuron( sim, sc ) );
             } 
-            else if ("synapse".equals( command )) {
-                try {
-                    synapses.add( Synapse.newSynapse(sc) );
-                } 
-                catch (Synapse.IllegalNameEx e) {}
+            catch (Neuron.IllegalNameEx e) {}
+        } 
+        else if ("synapse".equals( command )) {
+            try {
+                synapses.add( Synapse.newSynapse( sim, sc ) );
             } 
-            else if ("output".equals( command )) {
-                SimulationOutput.setOutput( sc );
+            catch (Synapse.IllegalNameEx e) {}
+        } 
+        else if ("output".equals( command )) {
+            sim.output.setOutput( sc );
+        }
+        else if ("engine".equals( command )) {
+            setEngine( sc );
+        }
+        else if ("vary".equals( command )) {
+            sim.sweep.vary( sc );
+        }
+        else if ("sweep".equals( command )) {
+            sim.sweep.sweep( sc );
+        }
+        else if ("ensemble".equals( command )) {
+            EnsembleEngine.ensemble( sim, sc );
+        }
+        else if ("decay".equals( command )) {
+            Decay.command( sim, sc );
+        }
+        else if ("coalesce".equals( command )) {
+            setCoalesce( sc );
+        }
+        else if ("watchdog".equals( command )) {
+            Watchdog.command( sim, sc );
+        }
+        else if ("compile".equals( command )) {
+            NetworkImage.compile( sim, sc );
+        }
+        else if ("load".equals( command )) {
+            NetworkImage.load( sim, sc );
+        }
+        else if ("read".equals( command )) {
+            return ParallelLoader.read( sim, sc );
+        }
+        else if ("horizon".equals( command )) {
+            setHorizon( sc );
+        }
+        else if ("step".equals( command )) {
+            step( sc );
+        }
+        else if ("run".equals(command)) {
+            run( sc );
+        }
+        else if("quit".equals(command)) {
+            // only this simulation quits, others may still be running
+            sim.out.println("--- system quitting ---");
+            return false;
+        }
+        else {
+            Errors.warning( command + " -- what is that" );
+            sc.nextLine();
+        }
+        return true;
+    }
+
+    /** Select how the simulator stores neuron and synapse events
+     *  The command is {@code engine calendar} for anonymous events in the
+     *  calendar queue, {@code engine heap} for allocation-free primitive
+     *  events, or {@code engine ring t} to round synapse deliveries up to
+     *  ticks of t time units and deliver them from a {@link DeliveryRing};
+     *  it applies to events scheduled after it.  With
+     *  {@code engine compiled}, each {@code run} simulates on a
+     *  {@link CompiledNetwork} instead of the network objects, and
+     *  {@code engine parallel n} does the same with n threads using the
+     *  {@link ParallelEngine}, or {@code engine timewarp n} with the
+     *  optimistic {@link TimeWarpEngine}.  {@code engine clock dt}
+     *  simulates the compiled network in fixed steps of dt with the
+     *  {@link ClockEngine}.  A {@code run} command can also choose the
+     *  clock or the event-driven engine for itself alone, see run.
+     */
+    void setEngine( Tokenizer sc ) {
+        Simulator simulator = sim.simulator;
+        String kind = ScanSupport.nextName(
+            sc,
+            () -> "engine ???"
+        );
+        if ("calendar".equals( kind )) {
+            simulator.usePrimitive = false;
+            simulator.ring = null;
+            simulator.useCompiled = false;
+        } else if ("heap".equals( kind )) {
+            simulator.usePrimitive = true;
+            simulator.ring = null;
+            simulator.useCompiled = false;
+        } else if ("compiled".equals( kind )) {
+            simulator.usePrimitive = true;
+            simulator.ring = null;
+            simulator.useCompiled = true;
+            simulator.workers = 1;
+            simulator.optimistic = false;
+            simulator.clockStep = 0.0f;
+        } else if ("parallel".equals( kind ) || "timewarp".equals( kind )) {
+            int n = ScanSupport.nextInt(
+                sc,
+                () -> "engine " + kind + " ???"
+            );
+            if (n > 0) {
+                simulator.usePrimitive = true;
+                simulator.ring = null;
+                simulator.useCompiled = true;
+                simulator.workers = n;
+                simulator.optimistic = "timewarp".equals( kind );
+                simulator.clockStep = 0.0f;
+            } else {
+                Errors.warning(
+                    "engine " + kind + " " + n + " -- need at least one thread"
+                );
+            }
+        } else if ("clock".equals( kind )) {
+            float dt = ScanSupport.nextFloat(
+                sc,
+                () -> "engine clock ???"
+            );
+            if (dt > 0.0f) {
+                simulator.usePrimitive = true;
+                simulator.ring = null;
+                simulator.useCompiled = true;
+                simulator.clockStep = dt;
+            } else {
+                Errors.warning(
+                    "engine clock " + dt + " -- step must be positive"
+                );
             }
-            else if ("run".equals(command)) {
-                System.out.println("--- running simulation ---");
-                Simulator.run();
+        } else if ("ring".equals( kind )) {
+            float tick = ScanSupport.nextFloat(
+                sc,
+                () -> "engine ring ???"
+            );
+            if (tick > 0.0f) {
+                simulator.ring = new DeliveryRing( this, tick );
+                simulator.useCompiled = false;
+            } else {
+                Errors.warning(
+                    "engine ring " + tick + " -- tick must be positive"
+                );
+            }
+        } else if (kind != null) {
+            Errors.warning( "engine " + kind + " -- no such engine" );
+        }
+        ScanSupport.lineEnd(
+            sc,
+            () -> "engine " + kind
+        );
+    }
+
+    /** Turn coalescing of same-time input on or off
+     *  The command is {@code coalesce on} or {@code coalesce off}; it
+     *  applies to primitive events, with {@code engine heap} or
+     *  {@code engine compiled}, see {@code Simulator.dispatchBatch}.  The
+     *  ring and clock engines always coalesce, and the others never do.
+     */
+    void setCoalesce( Tokenizer sc ) {
+        String what = ScanSupport.nextName(
+            sc,
+            () -> "coalesce ???"
+        );
+        if ("on".equals( what )) {
+            sim.simulator.coalesce = true;
+        } else if ("off".equals( what )) {
+            sim.simulator.coalesce = false;
+        } else if (what != null) {
+            Errors.warning( "coalesce " + what + " -- expected on or off" );
+        }
+        ScanSupport.lineEnd(
+            sc,
+            () -> "coalesce " + what
+        );
+    }
+
+    /** Scan a {@code run} command and run the simulation
+     *  A plain {@code run} simulates until no events remain;
+     *  {@code run t} simulates up to time t and pauses, so that a later
+     *  {@code run} or {@code step} resumes where it stopped.  Either may
+     *  end with {@code clock dt}, to simulate just this run on the
+     *  {@link ClockEngine} in steps of dt, or with {@code event}, to
+     *  simulate just this run event by event on the compiled network,
+     *  whatever the {@code engine} command selected; the report is the
+     *  same either way.
+     */
+    void run( Tokenizer sc ) {
+        float until = Float.POSITIVE_INFINITY;
+        if (!sc.atLineEnd() && !sc.hasNext( "clock" ) && !sc.hasNext( "event" )) {
+            if (!sc.hasNextFloat()) {
+                ScanSupport.nextFloat( sc, () -> "run ???" );
+                sc.nextLine();
+                return;
             }
-            else if("quit".equals(command)) {
-                System.out.println("--- system quitting ---");
-                System.exit(0);
+            until = sc.nextFloat();
+        }
+        final String time = (until == Float.POSITIVE_INFINITY) ? "" : " " + until;
+
+        // the clock step of this run, 0 for events, or -1 to use the engine
+        float clock = -1.0f;
+        if (sc.atLineEnd()) {
+            // the engine command decides
+        } else if (sc.hasNext( "event" )) {
+            sc.next();
+            clock = 0.0f;
+        } else if (sc.hasNext( "clock" )) {
+            sc.next();
+            if (!sc.hasNextFloat()) {
+                ScanSupport.nextFloat( sc, () -> "run" + time + " clock ???" );
+                sc.nextLine();
+                return;
             }
-            else {
-                Errors.warning( command + " -- what is that" );
+            clock = sc.nextFloat();
+            if (!(clock > 0.0f)) {
+                Errors.warning(
+                    "run" + time + " clock " + clock + " -- step must be positive"
+                );
                 sc.nextLine();
+                return;
             }
         }
+        final float step = clock;
+        ScanSupport.lineEnd(
+            sc,
+            () -> "run" + time + ((step > 0.0f) ? " clock " + step
+                                : (step == 0.0f) ? " event" : "")
+        );
+
+        Simulator s = sim.simulator;
+        boolean usePrimitive = s.usePrimitive;
+        boolean useCompiled = s.useCompiled;
+        DeliveryRing ring = s.ring;
+        int workers = s.workers;
+        boolean optimistic = s.optimistic;
+        float clockStep = s.clockStep;
+        if (clock >= 0.0f) {
+            s.usePrimitive = true;
+            s.useCompiled = true;
+            s.ring = null;
+            s.workers = 1;
+            s.optimistic = false;
+            s.clockStep = clock;
+        }
+        sim.out.println("--- running simulation ---");
+        try {
+            s.runUntil( until );
+        } finally {
+            if (clock >= 0.0f) {
+                s.usePrimitive = usePrimitive;
+                s.useCompiled = useCompiled;
+                s.ring = ring;
+                s.workers = workers;
+                s.optimistic = optimistic;
+                s.clockStep = clockStep;
+            }
+        }
+        reportRun();
+    }
+
+    /** Scan a {@code step n} command and simulate the next n events
+     */
+    void step( Tokenizer sc ) {
+        int n = ScanSupport.nextInt(
+            sc,
+            () -> "step ???"
+        );
+        ScanSupport.lineEnd(
+            sc,
+            () -> "step " + n
+        );
+        if (n < 0) {
+            Errors.warning( "step " + n + " -- expected a count" );
+            return;
+        }
+        sim.simulator.step( n );
+        reportRun();
+    }
+
+    /** Scan a {@code horizon} command
+     *  {@code horizon t} drops every event scheduled for after time t,
+     *  so a network that would fire forever can still be run to the end;
+     *  {@code horizon t spill} keeps such events aside instead, and a
+     *  later {@code horizon} command that reaches them brings them back.
+     *  {@code horizon none} removes the horizon.
+     */
+    void setHorizon( Tokenizer sc ) {
+        float h;
+        if (sc.hasNext( "none" )) {
+            sc.next();
+            h = Float.POSITIVE_INFINITY;
+        } else {
+            h = ScanSupport.nextFloat(
+                sc,
+                () -> "horizon ???"
+            );
+        }
+        boolean spill = false;
+        if (sc.hasNext( "spill" ) || sc.hasNext( "drop" )) {
+            spill = "spill".equals( sc.next() );
+        }
+        final boolean spills = spill;
+        ScanSupport.lineEnd(
+            sc,
+            () -> "horizon " + h + (spills ? " spill" : "")
+        );
+        sim.simulator.setHorizon( h, spill );
+    }
+
+    /** Say why the run stopped early and how many events were dropped
+     *  beyond the horizon, if there is anything to say, and send the
+     *  reports of the run on their way
+     */
+    private void reportRun() {
+        Simulator simulator = sim.simulator;
+        if (simulator.watchdog != null) simulator.watchdog.report( sim );
+        if (simulator.dropped > 0) {
+            sim.out.println(
+                "--- " + simulator.dropped + " events beyond horizon dropped ---"
+            );
+            simulator.dropped = 0;
+        }
+        sim.spikes.flush();
+        sim.output.flush();
+        sim.out.flush();
     }
 
     /** Print out the neuron network from the data structure
      */
-    static void printNetwork() {
+    void printNetwork() {
         for (Neuron n:neurons) {
-            System.out.println( n.toString() );
+            sim.out.println( n.toString() );
         }
         for (Synapse s:synapses) {
-            System.out.println( s.toString() );
+            sim.out.println( s.toString() );
         }
     }
 
     /** Main program
+     *  With no arguments, the network description and commands are read
+     *  from standard input, and the reports are written to standard output
+     *  by a {@link ReportWriter}.  Otherwise each argument names a file that is
+     *  simulated independently in its own {@link Simulation}; these run
+     *  concurrently, and their outputs are printed in argument order, see
+     *  {@code Simulation.runAll}.  The program then exits with status 1
+     *  if any of them failed.
      * @see initializeNetwork
      * @see printNetwork
      */
     public static void main(String[] args) {
-        /*if (args.length < 1) {
-            Errors.fatal( "missing file name" );
+        if (args.length == 0) {
+            Tokenizer sc = new Tokenizer( Channels.newChannel( System.in ) );
+            PrintStream out = new PrintStream( new ReportWriter(
+                new FileOutputStream( FileDescriptor.out ).getChannel()
+            ) );
+            Simulation sim = new Simulation( out );
+            sim.obey( sc );
+            out.close();
+            return;
         }
-        if (args.length > 1) {
-            Errors.fatal( "too many arguments" );
+        if (Simulation.runAll( Arrays.asList( args ), System.out, System.err ) > 0) {
+            System.exit( 1 );
         }
-        try {
-            initializeNetwork( new Scanner(new File(args[0])) );
-        } catch (FileNotFoundException e) {
-            Errors.fatal( "file not found: " + args[0] );
-        }
-        if (Errors.errCount == 0){
-            Simulator.run();
-        } else {
-            printNetwork();
-        }*/
-        Scanner sc = new Scanner(System.in);
-        initializeNetwork(sc);
     }
 }
@@ -0,0 +1,424 @@
+// ParallelEngine.java
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Conservative parallel simulation of a compiled network
+ *  @version: October 16, 2026
+ *  @see CompiledNetwork
+ *  @see Simulator
+ *
+ *  The neurons are split among worker threads, and each worker owns the
+ *  state of its neurons and a private {@link EventHeap} of the events
+ *  that change that state.  An edge belongs to the worker that owns the
+ *  neuron it kicks (or, for a secondary synapse, the neuron kicked by the
+ *  primary synapse it strengthens), so no two workers ever touch the
+ *  same array element.
+ *
+ *  The workers advance together through windows of simulated time.  If
+ *  T is the earliest pending event anywhere and L, the lookahead, is the
+ *  smallest delay of any edge whose source and owner belong to different
+ *  workers, no event in the window from T up to T+L can be caused by an
+ *  event in another worker during the same window.  So every worker can
+ *  simulate its events in that window independently; spikes for other
+ *  workers are posted to outboxes and exchanged before the next window.
+ *  Windows also stop at the time of the next {@code Simulator.Event}, so
+ *  that reports see exactly the state they would see in a sequential
+ *  run.  Each worker takes its events in the same (time, payload) order
+ *  as the sequential compiled engine, so the results are identical; see
+ *  {@code Simulator.DEPTH_SHIFT}.
+ *
+ *  Zero-delay edges would give no lookahead, so neurons joined by them
+ *  are always given to the same worker.
+ */
+class ParallelEngine {
+
+    private final Simulator simulator;
+    private final CompiledNetwork net;
+    private final Worker[] workers;
+    private final int[] owner;      // worker of each neuron
+    private final int[] edgeOwner;  // worker of each edge
+    private final float lookahead;
+    private int window = 0;         // number of windows simulated
+
+    /** Split a compiled network among the given number of workers
+     *  @param simulator the simulator holding the pending events
+     *  @param net the network
+     *  @param count the number of worker threads, at least one
+     */
+    ParallelEngine( Simulator simulator, CompiledNetwork net, int count ) {
+        this.simulator = simulator;
+        this.net = net;
+        owner = partition( net, count );
+        edgeOwner = edgeOwners( net, owner );
+
+        float l = Float.POSITIVE_INFINITY;
+        for (int n = 0; n < net.neuronCount; n++) {
+            for (int e = net.offsets[n]; e < net.offsets[n + 1]; e++) {
+                if ((edgeOwner[e] != owner[n]) && (net.delays[e] < l)) {
+                    l = net.delays[e];
+                }
+            }
+        }
+        lookahead = l;
+
+        workers = new Worker[count];
+        for (int w = 0; w < count; w++) {
+            workers[w] = new Worker( w );
+        }
+    }
+
+    /** Give each edge the worker of the neuron it finally affects
+     *  @param net the network
+     *  @param owner the worker of each neuron
+     *  @return the worker of each edge
+     */
+    static int[] edgeOwners( CompiledNetwork net, int[] owner ) {
+        int[] edgeOwner = new int[net.targets.length];
+        for (int n = 0; n < net.neuronCount; n++) {
+            for (int e = net.offsets[n]; e < net.offsets[n + 1]; e++) {
+                int t = net.targets[e];
+                if (t == CompiledNetwork.NOWHERE) {
+                    edgeOwner[e] = owner[n];
+                } else if (t >= 0) {
+                    edgeOwner[e] = owner[t];
+                } else {
+                    int p = net.targets[~t];
+                    edgeOwner[e] = (p >= 0) ? owner[p] : owner[n];
+                }
+            }
+        }
+        return edgeOwner;
+    }
+
+    /** Give each neuron a worker
+     *  Neurons joined by zero-delay edges are grouped with union-find,
+     *  then the groups are dealt out in order of their first neuron, each
+     *  worker taking groups until it has its share of the edges.
+     *  @param net the network
+     *  @param count the number of workers
+     *  @return the worker of each neuron
+     */
+    static int[] partition( CompiledNetwork net, int count ) {
+        int n = net.neuronCount;
+        int[] group = new int[n];
+        for (int i = 0; i < n; i++) group[i] = i;
+        for (int i = 0; i < n; i++) {
+            for (int e = net.offsets[i]; e < net.offsets[i + 1]; e++) {
+                int t = net.targets[e];
+                if ((t != CompiledNetwork.NOWHERE) && (t < 0)) {
+                    t = net.targets[~t];
+                }
+                if ((t >= 0) && (net.delays[e] <= 0.0f)) {
+                    group[find( group, i )] = find( group, t );
+                }
+            }
+        }
+
+        // the work of a group is the number of edges out of its neurons
+        long[] weight = new long[n];
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            long w = 1 + net.offsets[i + 1] - net.offsets[i];
+            weight[find( group, i )] += w;
+            total = total + w;
+        }
+
+        int[] owner = new int[n];
+        int[] groupOwner = new int[n];
+        Arrays.fill( groupOwner, -1 );
+        int worker = 0;
+        long load = 0;
+        for (int i = 0; i < n; i++) {
+            int g = find( group, i );
+            if (groupOwner[g] < 0) {
+                if ((load * count >= total * (worker + 1))
+                &&  (worker < count - 1)) {
+                    worker = worker + 1;
+                }
+                groupOwner[g] = worker;
+                load = load + weight[g];
+            }
+            owner[i] = groupOwner[g];
+        }
+        return owner;
+    }
+
+    /** Find the representative of i's group, compressing the path
+     */
+    private static int find( int[] group, int i ) {
+        while (group[i] != i) {
+            group[i] = group[group[i]];
+            i = group[i];
+        }
+        return i;
+    }
+
+    /** Run the simulation until no events of any kind remain
+     *  Primitive events already scheduled with the {@link Simulator} are
+     *  taken over first; {@code Simulator.Event}s stay with the
+     *  simulator and are triggered between windows.  If the simulator
+     *  stops sooner, the last window ends at its stop time and the events
+     *  left in the workers are given back to it.
+     */
+    void run() {
+        ExecutorService pool = Executors.newFixedThreadPool( workers.length );
+        List <Callable <Void>> tasks = new ArrayList <Callable <Void>> ();
+        for (Worker w: workers) tasks.add( w );
+        try {
+            float stop = simulator.stopTime();
+            for (;;) {
+                takePrimitives();
+                float t = earliest();
+                float control = simulator.nextEventTime();
+                if ((t > stop) && (control > stop)) {
+                    break;
+                }
+                if ((t == Float.POSITIVE_INFINITY)
+                &&  (control == Float.POSITIVE_INFINITY)) {
+                    // no events of any kind remain
+                    break;
+                }
+                if (control < t) {
+                    // everything up to and including control is done
+                    simulator.triggerNextEvent();
+                    continue;
+                }
+
+                // no spike sent during this window can arrive within it
+                float end = t + lookahead;
+                if (!(end > t)) {
+                    // the lookahead is lost in rounding at this time
+                    stepOne();
+                    continue;
+                }
+                for (Worker w: workers) {
+                    if (control < end) {
+                        w.limit = control;
+                        w.inclusive = true;
+                    } else if (stop < end) {
+                        w.limit = stop;
+                        w.inclusive = true;
+                    } else {
+                        w.limit = end;
+                        w.inclusive = false;
+                    }
+                }
+                await( pool, tasks );
+                window = window + 1;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+            for (Worker w: workers) w.decay.merge();
+        }
+        giveBack();
+    }
+
+    /** Run the workers' tasks and wait for all of them
+     *  Anything a task throws, {@code Error}s included, is thrown again
+     *  here once every task has stopped, so no window goes on with a
+     *  worker's state half updated.
+     */
+    static void await( ExecutorService pool, List <Callable <Void>> tasks )
+        throws InterruptedException {
+        Throwable failure = null;
+        for (Future <Void> f: pool.invokeAll( tasks )) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                if (failure == null) failure = e.getCause();
+            }
+        }
+        if (failure instanceof RuntimeException) throw (RuntimeException)failure;
+        if (failure instanceof Error) throw (Error)failure;
+        if (failure != null) throw new IllegalStateException( failure );
+    }
+
+    /** Return the events left in the workers to the simulator
+     */
+    private void giveBack() {
+        for (Worker w: workers) {
+            w.collect();
+        }
+        for (Worker w: workers) {
+            while (!w.heap.isEmpty()) {
+                simulator.giveBack( w.heap.topTime(), w.heap.topPayload() );
+                w.heap.removeTop();
+            }
+        }
+    }
+
+    /** Simulate just the earliest event, on this thread
+     *  This is the sequential algorithm, and is only used when the
+     *  lookahead is too small to change the time.
+     */
+    private void stepOne() {
+        for (Worker w: workers) {
+            w.collect();
+        }
+        Worker first = null;
+        for (Worker w: workers) {
+            if (w.heap.isEmpty()) continue;
+            if ((first == null)
+            ||  (w.heap.topTime() < first.heap.topTime())
+            ||  ((w.heap.topTime() == first.heap.topTime())
+                 && (w.heap.topPayload() < first.heap.topPayload()))) {
+                first = w;
+            }
+        }
+        first.limit = first.heap.topTime();
+        first.inclusive = true;
+        first.step();
+        window = window + 1;
+    }
+
+    /** Move primitive events pending in the simulator to their workers
+     */
+    private void takePrimitives() {
+        EventHeap pending = simulator.primitiveSet;
+        while (!pending.isEmpty()) {
+            float t = pending.topTime();
+            long p = pending.topPayload();
+            pending.removeTop();
+            long kind = p & Simulator.KIND;
+            int id = (int)p;
+            if (kind == Simulator.FIRE) {
+                workers[owner[id]].heap.add( t, p );
+            } else {
+                int e = (kind == Simulator.EDGE) ? id : net.edgeOf[id];
+                if (e >= 0) {
+                    long depth = p & (-1L << Simulator.DEPTH_SHIFT);
+                    workers[edgeOwner[e]].heap.add(
+                        t, depth | Simulator.EDGE | e
+                    );
+                }
+            }
+        }
+    }
+
+    /** Time of the earliest pending spike, wherever it is
+     */
+    private float earliest() {
+        float t = Float.POSITIVE_INFINITY;
+        for (Worker w: workers) {
+            if (!w.heap.isEmpty() && (w.heap.topTime() < t)) {
+                t = w.heap.topTime();
+            }
+            if (w.outMin < t) t = w.outMin;
+        }
+        return t;
+    }
+
+    /** One worker thread's share of the network
+     *  Outboxes are double buffered by window parity: during a window a
+     *  worker fills one set while its peers empty the set it filled in
+     *  the window before.
+     */
+    private class Worker implements Callable <Void>, CompiledNetwork.EdgeScheduler {
+        final int index;
+        final EventHeap heap = new EventHeap();
+
+        // outbox[parity][w] holds spikes for worker w
+        final float[][][] outTimes;
+        final long[][][] outPayloads;
+        final int[][] outCounts;
+        float outMin = Float.POSITIVE_INFINITY;
+
+        // the event being simulated, for Simulator.depthAfter
+        float nowTime;
+        long nowPayload;
+
+        // the window to simulate, set before each call
+        float limit;
+        boolean inclusive;
+
+        // this worker's view of the decay, see Decay
+        final Decay decay = net.decay.view();
+
+        Worker( int index ) {
+            this.index = index;
+            int n = ParallelEngine.this.workers.length;
+            outTimes = new float[2][n][16];
+            outPayloads = new long[2][n][16];
+            outCounts = new int[2][n];
+        }
+
+        public Void call() {
+            collect();
+            simulate();
+            return null;
+        }
+
+        /** Take the spikes other workers sent in the previous window
+         */
+        void collect() {
+            int parity = (window + 1) & 1;
+            for (Worker w: workers) {
+                int n = w.outCounts[parity][index];
+                float[] times = w.outTimes[parity][index];
+                long[] payloads = w.outPayloads[parity][index];
+                for (int i = 0; i < n; i++) {
+                    heap.add( times[i], payloads[i] );
+                }
+                w.outCounts[parity][index] = 0;
+            }
+            outMin = Float.POSITIVE_INFINITY;
+        }
+
+        /** Simulate every local event inside the window, in order
+         */
+        private void simulate() {
+            while (!heap.isEmpty()) {
+                float t = heap.topTime();
+                if ((t > limit) || ((t == limit) && !inclusive)) break;
+                step();
+            }
+        }
+
+        /** Simulate the earliest local event
+         */
+        void step() {
+            float t = heap.topTime();
+            long p = heap.topPayload();
+            heap.removeTop();
+            nowTime = t;
+            nowPayload = p;
+            if ((p & Simulator.KIND) == Simulator.FIRE) {
+                net.fire( (int)p, t, this );
+            } else {
+                net.deliver( (int)p, t, this, decay );
+            }
+        }
+
+        /** Called by the network for each edge of a neuron that fires
+         */
+        public void scheduleEdge( float t, int e ) {
+            long p = Simulator.depthAfter( nowTime, nowPayload, t )
+                   | Simulator.EDGE | e;
+            int w = edgeOwner[e];
+            if (w == index) {
+                heap.add( t, p );
+                return;
+            }
+            int parity = window & 1;
+            int n = outCounts[parity][w];
+            if (n == outTimes[parity][w].length) {
+                outTimes[parity][w] = Arrays.copyOf( outTimes[parity][w], n * 2 );
+                outPayloads[parity][w]
+                    = Arrays.copyOf( outPayloads[parity][w], n * 2 );
+            }
+            outTimes[parity][w][n] = t;
+            outPayloads[parity][w][n] = p;
+            outCounts[parity][w] = n + 1;
+            if (t < outMin) outMin = t;
+        }
+    }
+}
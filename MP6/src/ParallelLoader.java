@@ -0,0 +1,545 @@
+// ParallelLoader.java
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/** Reading a large network description with every processor
+ *  @version: October 16, 2026
+ *  @see Tokenizer
+ *  @see NeuronNetwork
+ *
+ *  The command {@code read f} reads the file f as if its text came in
+ *  place of the command, but in two passes.  Pass one splits the file
+ *  into chunks at line ends, each read into an array of its own, so a
+ *  file may be larger than any one array, and tokenizes all of them in
+ *  parallel on a fork-join pool, recording where each token is, its
+ *  interned string, and its value if it is a name or a number.  Pass
+ *  two replays those tokens, in order, through the usual code.  The
+ *  commands before the first synapse are obeyed as they come; then the
+ *  remaining {@code neuron} declarations are made; then everything
+ *  else.  So every
+ *  neuron is declared before any synapse looks for it, and a synapse may
+ *  name neurons declared further down the file.  A secondary synapse
+ *  must still follow the synapse it strengthens, and commands such as
+ *  {@code engine} that follow the first synapse only take effect after
+ *  all the neurons are declared.
+ *
+ *  Since pass one only records tokens, every error is reported in pass
+ *  two by the same code and in the same words as when the text is read
+ *  directly, and in the order the lines are obeyed: the errors of the
+ *  later neuron declarations come before those of the synapses, but are
+ *  otherwise in file order.  Because neurons are declared first, a
+ *  synapse that reuses the name of a later neuron is the one reported as
+ *  a duplicate.
+ *
+ *  Pass two builds the objects in parallel too.  Before the neurons are
+ *  declared, each chunk makes a {@code Neuron} for each of its neuron
+ *  lines in the plain form {@code neuron name threshold voltage}, and
+ *  before the rest, a {@code PrimarySynapse} for each synapse line in
+ *  the plain form whose source and destination are neurons and whose
+ *  delay is not negative.  Lines in any other form are left to the
+ *  usual code.  Then the replay, in file order, only checks each name
+ *  against the name table and enters the object, in tables made big
+ *  enough beforehand, so what is left in sequence is short.  Once a
+ *  command other than a declaration is obeyed among the synapses, the
+ *  objects made beforehand are not used, since the command could change
+ *  what the names mean.
+ */
+class ParallelLoader {
+
+    // flags recorded for each token
+    private static final byte NAME = 1;
+    private static final byte INT = 2;
+    private static final byte FLOAT = 4;
+
+    /** The tokens of one chunk of the file, bytes from up to to
+     */
+    private static final class Chunk {
+        final byte[] bytes;
+        final int from;
+        final int to;
+        int count = 0;
+        int[] start = new int[256];
+        int[] end = new int[256];
+        String[] text = new String[256];
+        byte[] flags = new byte[256];
+        int[] ints = new int[256];
+        float[] floats = new float[256];
+
+        // the objects made in pass two for the lines whose commands are
+        // tokens from, by the index of the command, see prepare
+        NeuronOrSynapse[] built = null;
+        int neurons = 0;
+        int synapses = 0;
+
+        Chunk( byte[] bytes, int from, int to ) {
+            this.bytes = bytes;
+            this.from = from;
+            this.to = to;
+        }
+
+        /** Pass one: record every token of the chunk
+         */
+        Chunk scan() {
+            Tokenizer t = new Tokenizer( bytes, from, to );
+            while (t.hasNext()) {
+                if (count == start.length) grow();
+                start[count] = t.tokenStart();
+                end[count] = t.tokenEnd();
+                byte f = 0;
+                if (t.hasNextName()) f = (byte)(f | NAME);
+                if (t.hasNextInt()) {
+                    f = (byte)(f | INT);
+                    ints[count] = t.intValue();
+                }
+                if (t.hasNextFloat()) {
+                    f = (byte)(f | FLOAT);
+                    floats[count] = t.floatValue();
+                }
+                flags[count] = f;
+                text[count] = t.next();
+                count = count + 1;
+            }
+            return this;
+        }
+
+        private void grow() {
+            int n = count * 2;
+            start = Arrays.copyOf( start, n );
+            end = Arrays.copyOf( end, n );
+            text = Arrays.copyOf( text, n );
+            flags = Arrays.copyOf( flags, n );
+            ints = Arrays.copyOf( ints, n );
+            floats = Arrays.copyOf( floats, n );
+        }
+
+        /** Is there no line end between tokens i and j?
+         */
+        private boolean sameLine( int i, int j ) {
+            for (int b = end[i]; b < start[j]; b++) {
+                if ((bytes[b] == '\n') || (bytes[b] == '\r')) return false;
+            }
+            return true;
+        }
+
+        /** Is token i the last of its line?
+         */
+        private boolean endsLine( int i ) {
+            int limit = (i + 1 < count) ? start[i + 1] : to;
+            for (int b = end[i]; b < limit; b++) {
+                if ((bytes[b] == '\n') || (bytes[b] == '\r')) return true;
+            }
+            return i + 1 == count;
+        }
+
+        /** Are tokens i to i + n - 1 a whole line, with the given flags?
+         */
+        private boolean plain( int i, byte... f ) {
+            if (i + f.length > count) return false;
+            for (int j = 0; j < f.length; j++) {
+                if ((flags[i + j] & f[j]) != f[j]) return false;
+                if ((j > 0) && !sameLine( i + j - 1, i + j )) return false;
+            }
+            return endsLine( i + f.length - 1 );
+        }
+
+        /** Pass two: make the neurons of the plain neuron lines from token
+         *  first on, and count the declarations
+         */
+        Chunk prepareNeurons( Simulation sim, int first ) {
+            built = new NeuronOrSynapse[count];
+            for (int i = first; i < count; i++) {
+                if ("neuron".equals( text[i] )) {
+                    neurons = neurons + 1;
+                    if (plain( i, (byte)0, NAME, FLOAT, FLOAT )) {
+                        String name = text[i + 1];
+                        name.hashCode();    // computed here, once
+                        built[i] = new Neuron( sim, name, floats[i + 2], floats[i + 3] );
+                    }
+                } else if ("synapse".equals( text[i] )) {
+                    synapses = synapses + 1;
+                }
+            }
+            return this;
+        }
+
+        /** Pass two: make the synapses of the plain synapse lines from
+         *  token first on; every neuron has been declared
+         */
+        Chunk prepareSynapses( NeuronNetwork net, int first ) {
+            for (int i = first; i < count; i++) {
+                if (!"synapse".equals( text[i] )) continue;
+                boolean named = (flags[i + 1 < count ? i + 1 : i] & NAME) != 0;
+                if (!named && ((i + 1 >= count) || !"-".equals( text[i + 1] ))) continue;
+                if (!plain( i, (byte)0, (byte)0, NAME, NAME, FLOAT, FLOAT )) continue;
+                Neuron source = net.findNeuron( text[i + 2] );
+                Neuron destination = net.findNeuron( text[i + 3] );
+                if ((source == null) || (destination == null)) continue;
+                if (floats[i + 4] < 0.0f) continue;
+                Synapse s = new PrimarySynapse( destination );
+                if (named) {
+                    s.name = text[i + 1];
+                    s.name.hashCode();
+                }
+                s.source = source;
+                s.delay = floats[i + 4];
+                s.strength = floats[i + 5];
+                built[i] = s;
+            }
+            return this;
+        }
+    }
+
+    /** Pass two: the recorded tokens, read back in order
+     *  Behaves exactly as a {@link Tokenizer} reading the whole file.
+     */
+    private static final class Replay extends Tokenizer {
+        private final List <Chunk> chunks;
+        private int c = 0;          // the current chunk
+        private int k = 0;          // its next token
+        private int pos;            // the next byte not yet consumed
+
+        Replay( List <Chunk> chunks ) {
+            super( new byte[0], 0, 0 );
+            this.chunks = chunks;
+            pos = chunks.isEmpty() ? 0 : chunks.get( 0 ).from;
+        }
+
+        /** Another replay, starting where r is now
+         */
+        Replay( Replay r ) {
+            this( r.chunks );
+            c = r.c;
+            k = r.k;
+            pos = r.pos;
+        }
+
+        /** Find the chunk holding the next token
+         *  @return false if there is none
+         */
+        private boolean advance() {
+            while (c < chunks.size()) {
+                if (k < chunks.get( c ).count) return true;
+                nextChunk();
+            }
+            return false;
+        }
+
+        private void nextChunk() {
+            c = c + 1;
+            k = 0;
+            if (c < chunks.size()) pos = chunks.get( c ).from;
+        }
+
+        /** The object made in pass two for the line whose command is the
+         *  next token, or null
+         */
+        NeuronOrSynapse prepared() {
+            if (!advance()) return null;
+            NeuronOrSynapse[] b = chunks.get( c ).built;
+            return (b == null) ? null : b[k];
+        }
+
+        private boolean has( byte flag ) {
+            return advance() && ((chunks.get( c ).flags[k] & flag) != 0);
+        }
+
+        boolean hasNext() {
+            return advance();
+        }
+
+        boolean hasNext( String word ) {
+            return advance() && word.equals( chunks.get( c ).text[k] );
+        }
+
+        String next() {
+            if (!advance()) throw new NoSuchElementException();
+            Chunk ch = chunks.get( c );
+            pos = ch.end[k];
+            k = k + 1;
+            return ch.text[k - 1];
+        }
+
+        boolean hasNextName() {
+            return has( NAME );
+        }
+
+        String nextName() {
+            if (!has( NAME )) throw new InputMismatchException();
+            return next();
+        }
+
+        boolean hasNextInt() {
+            return has( INT );
+        }
+
+        int nextInt() {
+            if (!has( INT )) throw new InputMismatchException();
+            int v = chunks.get( c ).ints[k];
+            next();
+            return v;
+        }
+
+        boolean hasNextFloat() {
+            return has( FLOAT );
+        }
+
+        float nextFloat() {
+            if (!has( FLOAT )) throw new InputMismatchException();
+            float v = chunks.get( c ).floats[k];
+            next();
+            return v;
+        }
+
+        String nextLine() {
+            if (c >= chunks.size()) return "";
+            Chunk ch = chunks.get( c );
+            if (pos == ch.to) {
+                // chunks end at line ends, so the line is in the next one
+                nextChunk();
+                if (c >= chunks.size()) return "";
+                ch = chunks.get( c );
+            }
+            byte[] b = ch.bytes;
+            int i = pos;
+            while ((i < ch.to) && (b[i] != '\n') && (b[i] != '\r')) {
+                i = i + 1;
+            }
+            String line = new String( b, pos, i - pos, StandardCharsets.UTF_8 );
+            pos = i;
+            if (pos < ch.to) {
+                pos = pos + 1;
+                if ((b[pos - 1] == '\r') && (pos < ch.to) && (b[pos] == '\n')) {
+                    pos = pos + 1;
+                }
+            }
+            while ((k < ch.count) && (ch.start[k] < pos)) {
+                k = k + 1;
+            }
+            return line;
+        }
+    }
+
+    /** Scan a {@code read} command and read the file
+     *  @param sim the simulation the file is read into
+     *  @param sc the scanner, positioned just after the command
+     *  @return false if the file ended with a {@code quit} command
+     */
+    static boolean read( Simulation sim, Tokenizer sc ) {
+        String file = sc.hasNext() ? sc.next() : null;
+        ScanSupport.lineEnd(
+            sc,
+            () -> "read " + file
+        );
+        if (file == null) {
+            Errors.warning( "read -- expected a file name" );
+            return true;
+        }
+        List <Chunk> chunks = scan( file );
+        if (chunks == null) return true;
+
+        // up to the first synapse, then the other neurons, then the rest
+        NeuronNetwork net = sim.network;
+        Replay sc2 = new Replay( chunks );
+        while (sc2.hasNext() && !sc2.hasNext( "synapse" )) {
+            if (!net.obey( sc2.next(), sc2, true )) return false;
+        }
+        Replay rest = new Replay( sc2 );
+        int c = sc2.c;
+        int k = sc2.k;
+        if (!prepare( chunks, c, k, (Chunk ch, int first) -> ch.prepareNeurons( sim, first ) )) {
+            return true;
+        }
+        int neurons = 0;
+        int synapses = 0;
+        for (Chunk ch: chunks) {
+            neurons = neurons + ch.neurons;
+            synapses = synapses + ch.synapses;
+        }
+        net.expect( neurons, synapses );
+        while (sc2.hasNext()) {
+            NeuronOrSynapse b = sc2.prepared();
+            if (!"neuron".equals( sc2.next() )) {
+                sc2.nextLine();
+            } else if (b != null) {
+                sc2.nextLine();
+                declare( sim, (Neuron)b );
+            } else {
+                net.obey( "neuron", sc2, true );
+            }
+        }
+
+        if (!prepare( chunks, c, k, (Chunk ch, int first) -> ch.prepareSynapses( net, first ) )) {
+            return true;
+        }
+        boolean usable = true;
+        while (rest.hasNext()) {
+            NeuronOrSynapse b = usable ? rest.prepared() : null;
+            String command = rest.next();
+            if (b instanceof Synapse) {
+                rest.nextLine();
+                declare( sim, (Synapse)b );
+            } else {
+                if (!net.obey( command, rest, false )) return false;
+                if (!"neuron".equals( command ) && !"synapse".equals( command )) {
+                    usable = false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Declare a neuron made in pass two, as its constructor would have
+     */
+    private static void declare( Simulation sim, Neuron n ) {
+        NeuronNetwork net = sim.network;
+        if (net.findNeuronOrSynapse( n.name ) != null) {
+            Errors.warning(
+                "Neuron " + n.name +
+                " -- duplicate declaration"
+            );
+            return;
+        }
+        net.declare( n );
+        net.neurons.add( n );
+        if (n.voltage > n.threshold) {
+            sim.simulator.scheduleFire( 0.0f, n );
+        }
+    }
+
+    /** Declare a synapse made in pass two, as newSynapse would have
+     */
+    private static void declare( Simulation sim, Synapse s ) {
+        NeuronNetwork net = sim.network;
+        if ((s.name != null) && (net.findNeuronOrSynapse( s.name ) != null)) {
+            Errors.warning(
+                "Synapse " + s.name +
+                " -- duplicate declaration"
+            );
+            return;
+        }
+        net.declare( s );
+        s.source.synapses.add( s );
+        net.synapses.add( s );
+    }
+
+    /** Work on one chunk, from token first on
+     */
+    private interface Work {
+        void on( Chunk ch, int first );
+    }
+
+    /** Do some work on every chunk from token k of chunk c on, in parallel
+     *  @return false if it failed
+     */
+    private static boolean prepare( List <Chunk> chunks, int c, int k, Work w ) {
+        List <Callable <Chunk>> tasks = new ArrayList <Callable <Chunk>> ();
+        for (int i = c; i < chunks.size(); i++) {
+            Chunk ch = chunks.get( i );
+            int first = (i == c) ? k : 0;
+            tasks.add( () -> {
+                w.on( ch, first );
+                return ch;
+            } );
+        }
+        return invoke( tasks ) != null;
+    }
+
+    // the most bytes in one chunk, well below the largest array
+    private static final long MAX_CHUNK = 1L << 28;
+
+    /** Pass one: split the file into chunks and tokenize them in parallel
+     *  @param file the file
+     *  @return the chunks in order, or null if reading or tokenizing failed
+     */
+    private static List <Chunk> scan( String file ) {
+        int processors = ForkJoinPool.commonPool().getParallelism();
+        List <Callable <Chunk>> tasks = new ArrayList <Callable <Chunk>> ();
+        try (FileChannel in = FileChannel.open( Paths.get( file ), StandardOpenOption.READ )) {
+            long size = in.size();
+            long pieces = Math.max( processors * 4L, (size + MAX_CHUNK - 1) / MAX_CHUNK );
+            long from = 0;
+            for (long i = 1; (i <= pieces) && (from < size); i++) {
+                long to = lineEnd( in, Math.max( from + 1, size * i / pieces ), size );
+                if (to - from > Integer.MAX_VALUE - 8) {
+                    Errors.warning( "read " + file + " -- line too long" );
+                    return null;
+                }
+                long at = from;
+                int length = (int)(to - from);
+                tasks.add( () -> {
+                    byte[] bytes = new byte[length];
+                    ByteBuffer b = ByteBuffer.wrap( bytes );
+                    while (b.hasRemaining()) {
+                        if (in.read( b, at + b.position() ) < 0) {
+                            throw new IOException( "file is shorter than it was" );
+                        }
+                    }
+                    return new Chunk( bytes, 0, length ).scan();
+                } );
+                from = to;
+            }
+            return invoke( tasks );
+        } catch (IOException e) {
+            Errors.warning( "read " + file + " -- " + e.getMessage() );
+            return null;
+        }
+    }
+
+    /** The place just after the first line end at or after at - 1
+     *  @return the place, or size if the file ends first
+     */
+    private static long lineEnd( FileChannel in, long at, long size ) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate( 1 << 12 );
+        long p = at - 1;
+        while (p < size) {
+            b.clear();
+            int n = in.read( b, p );
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (b.get( i ) == '\n') return p + i + 1;
+            }
+            p = p + n;
+        }
+        return size;
+    }
+
+    /** Run tasks on a fork-join pool and wait for all of them
+     *  Their errors go where this thread's go, see {@code Errors.inherit}.
+     *  @return their chunks in order, or null if one failed
+     */
+    private static List <Chunk> invoke( List <Callable <Chunk>> tasks ) {
+        ForkJoinPool pool = new ForkJoinPool();
+        List <Chunk> chunks = new ArrayList <Chunk> ();
+        try {
+            List <Callable <Chunk>> wrapped = new ArrayList <Callable <Chunk>> ();
+            for (Callable <Chunk> t: tasks) wrapped.add( Errors.inherit( t ) );
+            for (Future <Chunk> f: pool.invokeAll( wrapped )) {
+                chunks.add( f.get() );
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Errors.warning( "read -- failed: " + e.getCause() );
+            return null;
+        } finally {
+            pool.shutdown();
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,370 @@
+// ParameterSweep.java
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/** Many runs of one network with different parameters
+ *  @version: October 16, 2026
+ *  @see CompiledNetwork
+ *  @see NeuronNetwork
+ *  @see Simulation
+ *
+ *  Each {@code vary} command adds an axis to the sweep: a parameter of a
+ *  neuron or synapse, and the values it is to take.  The command
+ *  {@code vary N threshold 0.5 1.5 11} gives the threshold of neuron N
+ *  eleven values evenly spaced from 0.5 to 1.5; the parameters are
+ *  {@code threshold} and {@code voltage} for neurons and {@code strength}
+ *  for synapses, and the name {@code *} stands for every neuron or every
+ *  synapse.  The command {@code sweep t} then simulates every combination
+ *  of the values of all the axes from time zero to time t, and prints a
+ *  summary of each run: the values used, the number of spikes, the number
+ *  of neurons that fired, and the number of events simulated, all counted
+ *  in that run alone.
+ *
+ *  The network is read and compiled once for the whole sweep.  Every run
+ *  shares the edges of the compiled network, which no run changes, and
+ *  gets its own copy of just the state that it changes: the voltages,
+ *  times and counts always, the thresholds only if it varies them, and
+ *  the strengths only if it varies them or the network has secondary
+ *  synapses that change them during a run.  The runs are independent, so
+ *  they are spread over a fork-join pool with a thread per processor.
+ *
+ *  Each run starts from the current state of the network, and every
+ *  neuron whose voltage is then above its threshold fires at time zero,
+ *  as when neurons are declared; events scheduled for a {@code run} and
+ *  reports requested with {@code output} play no part in a sweep.  A
+ *  sweep of more than {@code MAX_RUNS} runs is refused, and a run that
+ *  fails is reported by number and left out of the summaries.
+ */
+class ParameterSweep {
+
+    // the parameters that can be varied
+    private static final String[] PARAMETERS
+        = { "threshold", "voltage", "strength" };
+    private static final int THRESHOLD = 0;
+    private static final int VOLTAGE = 1;
+    private static final int STRENGTH = 2;
+
+    // the most runs a sweep may do; each has a task and a summary
+    static final int MAX_RUNS = 1 << 20;
+
+    /** One axis of the sweep
+     */
+    private static class Axis {
+        final String name;      // the name, or * for all
+        final int id;           // neuron or synapse id, or -1 for all
+        final int parameter;    // THRESHOLD, VOLTAGE or STRENGTH
+        final float from;
+        final float to;
+        final int points;
+
+        Axis( String name, int id, int parameter,
+              float from, float to, int points ) {
+            this.name = name;
+            this.id = id;
+            this.parameter = parameter;
+            this.from = from;
+            this.to = to;
+            this.points = points;
+        }
+
+        /** The i'th of the values of this axis
+         */
+        float value( int i ) {
+            if (points == 1) return from;
+            return from + ((to - from) * i) / (points - 1);
+        }
+    }
+
+    /** The compact result of one run
+     */
+    static class Summary {
+        final int run;          // number of the run, from zero
+        final float[] values;   // the value of each axis in this run
+        final long spikes;      // firings of all neurons together
+        final int active;       // neurons that fired at least once
+        final long events;      // events simulated
+
+        Summary( int run, float[] values,
+                 long spikes, int active, long events ) {
+            this.run = run;
+            this.values = values;
+            this.spikes = spikes;
+            this.active = active;
+            this.events = events;
+        }
+    }
+
+    private final Simulation sim;
+    private final List <Axis> axes = new ArrayList <Axis> ();
+
+    /** Create a sweep with no axes
+     *  @param sim the simulation whose network is to be swept
+     */
+    ParameterSweep( Simulation sim ) {
+        this.sim = sim;
+    }
+
+    /** Scan a {@code vary} command and add its axis to the sweep
+     *  @param sc the scanner, positioned just after the command
+     */
+    void vary( Tokenizer sc ) {
+        String name;
+        if (sc.hasNext( "*" )) {
+            name = sc.next();
+        } else {
+            name = ScanSupport.nextName(
+                sc,
+                () -> "vary ???"
+            );
+        }
+        String param = ScanSupport.nextName(
+            sc,
+            () -> "vary " + name + " ???"
+        );
+        float from = ScanSupport.nextFloat(
+            sc,
+            () -> "vary " + name + " " + param + " ???"
+        );
+        float to = ScanSupport.nextFloat(
+            sc,
+            () -> "vary " + name + " " + param + " " + from + " ???"
+        );
+        int points = ScanSupport.nextInt(
+            sc,
+            () -> "vary " + name + " " + param + " " + from + " " + to + " ???"
+        );
+        ScanSupport.lineEnd(
+            sc,
+            () -> "vary " + name + " " + param
+        );
+        if ((name == null) || (param == null)) return;
+
+        int parameter = -1;
+        for (int i = 0; i < PARAMETERS.length; i++) {
+            if (PARAMETERS[i].equals( param )) parameter = i;
+        }
+        if (parameter < 0) {
+            Errors.warning( "vary " + name + " " + param + " -- no such parameter" );
+            return;
+        }
+        if (points < 1) {
+            Errors.warning(
+                "vary " + name + " " + param + " -- need at least one point"
+            );
+            return;
+        }
+
+        int id = -1;
+        if (!"*".equals( name )) {
+            NeuronOrSynapse o = sim.network.findNeuronOrSynapse( name );
+            boolean neuronParameter = (parameter != STRENGTH);
+            if ((o == null) || ((o instanceof Neuron) != neuronParameter)) {
+                Errors.warning(
+                    "vary " + name + " " + param + " -- no such " +
+                    (neuronParameter ? "neuron" : "synapse")
+                );
+                return;
+            }
+            id = o.id;
+        }
+        axes.add( new Axis( name, id, parameter, from, to, points ) );
+    }
+
+    /** Scan a {@code sweep} command, do the runs and print the summaries
+     *  @param sc the scanner, positioned just after the command
+     */
+    void sweep( Tokenizer sc ) {
+        float length = ScanSupport.nextFloat(
+            sc,
+            () -> "sweep ???"
+        );
+        ScanSupport.lineEnd(
+            sc,
+            () -> "sweep " + length
+        );
+        List <Summary> summaries = run( length );
+        if (summaries == null) return;
+
+        // one tab separated line per run, after a heading
+        StringBuilder line = new StringBuilder( "run" );
+        for (Axis a: axes) {
+            line.append( '\t' ).append( a.name ).append( '.' )
+                .append( PARAMETERS[a.parameter] );
+        }
+        sim.out.println( line.append( "\tspikes\tactive\tevents" ) );
+        for (Summary s: summaries) {
+            line.setLength( 0 );
+            line.append( s.run );
+            for (float v: s.values) line.append( '\t' ).append( v );
+            line.append( '\t' ).append( s.spikes )
+                .append( '\t' ).append( s.active )
+                .append( '\t' ).append( s.events );
+            sim.out.println( line );
+        }
+    }
+
+    /** Do every run of the sweep
+     *  @param length the simulated time of each run
+     *  @return the summaries, in order of run number, or null if there
+     *          are too many runs
+     */
+    List <Summary> run( float length ) {
+        CompiledNetwork base
+            = CompiledNetwork.compile( sim.network, sim.simulator.decay );
+        boolean secondaries = false;
+        for (int t: base.targets) {
+            if ((t < 0) && (t != CompiledNetwork.NOWHERE)) secondaries = true;
+        }
+        final boolean changesStrength = secondaries;
+
+        long product = 1;
+        for (Axis a: axes) {
+            product = product * a.points;
+            if (product > MAX_RUNS) {
+                Errors.warning(
+                    "sweep -- more than " + MAX_RUNS + " runs"
+                );
+                return null;
+            }
+        }
+        int runs = (int)product;
+
+        List <Callable <Summary>> tasks = new ArrayList <Callable <Summary>> ();
+        for (int r = 0; r < runs; r++) {
+            final int run = r;
+            tasks.add( () -> simulate( base, changesStrength, run, length ) );
+        }
+
+        List <Summary> summaries = new ArrayList <Summary> ();
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            List <Future <Summary>> results = pool.invokeAll( tasks );
+            for (int r = 0; r < runs; r++) {
+                try {
+                    summaries.add( results.get( r ).get() );
+                } catch (ExecutionException e) {
+                    Errors.warning(
+                        "sweep -- run " + r + " failed: " + e.getCause()
+                    );
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+        return summaries;
+    }
+
+    /** Simulate one run
+     *  @param base the compiled network, shared by all runs
+     *  @param changesStrength true if a run may change edge strengths
+     *  @param run the number of the run; its digits in the mixed radix
+     *         given by the numbers of points of the axes pick the values
+     *  @param length the simulated time
+     *  @return the summary of the run
+     */
+    private Summary simulate( CompiledNetwork base, boolean changesStrength,
+                              int run, float length ) {
+        float[] values = new float[axes.size()];
+        float[] threshold = base.threshold;
+        float[] voltage = base.voltage.clone();
+        float[] strengths = base.strengths;
+        if (changesStrength) strengths = strengths.clone();
+
+        // copy the thresholds and strengths on first write
+        int rest = run;
+        for (int i = axes.size() - 1; i >= 0; i--) {
+            Axis a = axes.get( i );
+            float v = a.value( rest % a.points );
+            rest = rest / a.points;
+            values[i] = v;
+            if (a.parameter == THRESHOLD) {
+                if (threshold == base.threshold) threshold = threshold.clone();
+                set( threshold, a.id, v );
+            } else if (a.parameter == VOLTAGE) {
+                set( voltage, a.id, v );
+            } else {
+                if (strengths == base.strengths) strengths = strengths.clone();
+                if (a.id < 0) {
+                    set( strengths, -1, v );
+                } else if (base.edgeOf[a.id] >= 0) {
+                    strengths[base.edgeOf[a.id]] = v;
+                }
+            }
+        }
+        CompiledNetwork net
+            = new CompiledNetwork( base, threshold, voltage, strengths );
+
+        Run r = new Run( net );
+        for (int n = 0; n < net.neuronCount; n++) {
+            if (voltage[n] > threshold[n]) r.heap.add( 0.0f, Simulator.FIRE | n );
+        }
+        long events = r.simulate( length );
+        net.decay.merge();
+
+        long spikes = 0;
+        int active = 0;
+        for (int n = 0; n < net.neuronCount; n++) {
+            spikes = spikes + net.fireCount[n];
+            if (net.fireCount[n] > 0) active = active + 1;
+        }
+        return new Summary( run, values, spikes, active, events );
+    }
+
+    /** Set element i of a, or every element if i is negative
+     */
+    private static void set( float[] a, int i, float v ) {
+        if (i >= 0) {
+            a[i] = v;
+        } else {
+            for (int j = 0; j < a.length; j++) a[j] = v;
+        }
+    }
+
+    /** The events of one run, taken in the same (time, payload) order as
+     *  the sequential compiled engine, see {@code Simulator.DEPTH_SHIFT}
+     */
+    private static class Run implements CompiledNetwork.EdgeScheduler {
+        final CompiledNetwork net;
+        final EventHeap heap = new EventHeap();
+        float nowTime;
+        long nowPayload;
+
+        Run( CompiledNetwork net ) {
+            this.net = net;
+        }
+
+        /** Simulate every event up to and including the given time
+         *  @return the number of events simulated
+         */
+        long simulate( float length ) {
+            long events = 0;
+            while (!heap.isEmpty() && (heap.topTime() <= length)) {
+                float t = heap.topTime();
+                long p = heap.topPayload();
+                heap.removeTop();
+                nowTime = t;
+                nowPayload = p;
+                if ((p & Simulator.KIND) == Simulator.FIRE) {
+                    net.fire( (int)p, t, this );
+                } else {
+                    net.deliver( (int)p, t, this );
+                }
+                events = events + 1;
+            }
+            return events;
+        }
+
+        public void scheduleEdge( float t, int e ) {
+            heap.add(
+                t, Simulator.depthAfter( nowTime, nowPayload, t ) | Simulator.EDGE | e
+            );
+        }
+    }
+}
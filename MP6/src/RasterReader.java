@@ -0,0 +1,231 @@
+// RasterReader.java
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/** Reads the firings recorded in a spike raster file
+ *  @version: October 16, 2026
+ *  @see SpikeRaster
+ *
+ *  Opening a raster reads only its header and index.  {@code scan}
+ *  then reads and decodes just the blocks whose range of times and of
+ *  neuron ids meets the range asked for, and gives each firing in it to
+ *  a {@link Visitor}.  Since the firings of each group of neurons are
+ *  in blocks of their own, a scan for a few neurons reads only their
+ *  group's blocks.  The firings of each neuron are visited in time
+ *  order; those of different groups are visited a block at a time.  As
+ *  a program,
+ *  <PRE>
+ *  java RasterReader file [from to [first last]]
+ *  </PRE>
+ *  prints the firings from time from to time to, of neurons first to
+ *  last, or all of them, one {@code time id} pair to a line.
+ */
+class RasterReader implements AutoCloseable {
+
+    /** Told of each firing found by a scan
+     */
+    public interface Visitor {
+        void spike( int id, float time );
+    }
+
+    private final FileChannel channel;
+
+    /** The number of neurons in the network when the raster began
+     */
+    final int neurons;
+
+    // the index, see SpikeRaster
+    private final int blocks;
+    private final long[] offset;
+    private final int[] length;
+    private final int[] count;
+    private final float[] earliest;
+    private final float[] latest;
+    private final int[] lowId;
+    private final int[] highId;
+
+    private byte[] block = new byte[0];
+
+    /** Open a raster and read its index
+     *  @param path the file
+     */
+    RasterReader( Path path ) throws IOException {
+        channel = FileChannel.open( path, StandardOpenOption.READ );
+        try {
+            long size = channel.size();
+            if (size < SpikeRaster.HEADER + SpikeRaster.FOOTER) {
+                throw new IOException( "not a spike raster" );
+            }
+            ByteBuffer h = read( 0, SpikeRaster.HEADER );
+            if (h.getInt() != SpikeRaster.MAGIC) {
+                throw new IOException( "not a spike raster" );
+            }
+            int version = h.getInt();
+            if (version != SpikeRaster.VERSION) {
+                throw new IOException(
+                    "raster version " + version + ", expected " + SpikeRaster.VERSION
+                );
+            }
+            neurons = h.getInt();
+            h.getInt();                 // block size
+            if (h.getInt() <= 0) {
+                throw new IOException( "raster is damaged" );
+            }
+
+            ByteBuffer f = read( size - SpikeRaster.FOOTER, SpikeRaster.FOOTER );
+            long at = f.getLong();
+            blocks = f.getInt();
+            if ( (f.getInt() != SpikeRaster.MAGIC)
+            ||   (blocks < 0)
+            ||   (at + (long)blocks * SpikeRaster.INDEX_ENTRY + SpikeRaster.FOOTER != size) ) {
+                throw new IOException( "raster is unfinished or damaged" );
+            }
+            ByteBuffer x = read( at, blocks * SpikeRaster.INDEX_ENTRY );
+            offset = new long[blocks];
+            length = new int[blocks];
+            count = new int[blocks];
+            earliest = new float[blocks];
+            latest = new float[blocks];
+            lowId = new int[blocks];
+            highId = new int[blocks];
+            for (int b = 0; b < blocks; b++) {
+                offset[b] = x.getLong();
+                length[b] = x.getInt();
+                count[b] = x.getInt();
+                earliest[b] = x.getFloat();
+                latest[b] = x.getFloat();
+                lowId[b] = x.getInt();
+                highId[b] = x.getInt();
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Read size bytes from the file at the given place
+     */
+    private ByteBuffer read( long at, int size ) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate( size ).order( ByteOrder.LITTLE_ENDIAN );
+        while (b.hasRemaining()) {
+            int n = channel.read( b, at + b.position() );
+            if (n < 0) throw new IOException( "raster is truncated" );
+        }
+        b.flip();
+        return b;
+    }
+
+    /** The number of firings in the raster
+     */
+    long spikes() {
+        long total = 0;
+        for (int c: count) total = total + c;
+        return total;
+    }
+
+    /** Give every firing in the raster to v
+     */
+    void scan( Visitor v ) throws IOException {
+        scan(
+            Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY,
+            0, Integer.MAX_VALUE, v
+        );
+    }
+
+    /** Give v the firings in a range of times and of neurons
+     *  @param from the earliest time
+     *  @param to the latest time
+     *  @param first the lowest neuron id
+     *  @param last the highest neuron id
+     *  @param v told of each firing in the ranges
+     */
+    void scan( float from, float to, int first, int last, Visitor v ) throws IOException {
+        for (int b = 0; b < blocks; b++) {
+            if ( (latest[b] < from) || (earliest[b] > to)
+            ||   (highId[b] < first) || (lowId[b] > last) ) {
+                continue;
+            }
+            if (block.length < length[b]) block = new byte[length[b]];
+            ByteBuffer buf = ByteBuffer.wrap( block, 0, length[b] );
+            while (buf.hasRemaining()) {
+                if (channel.read( buf, offset[b] + buf.position() ) < 0) {
+                    throw new IOException( "raster is truncated" );
+                }
+            }
+
+            // decode, see SpikeRaster
+            int i = 0;
+            int bits = 0;
+            int id = 0;
+            for (int k = 0; k < count[b]; k++) {
+                int z = 0;
+                for (int shift = 0; ; shift = shift + 7) {
+                    byte c = block[i++];
+                    z = z | ((c & 0x7F) << shift);
+                    if (c >= 0) break;
+                }
+                bits = bits + ((z >>> 1) ^ -(z & 1));
+                z = 0;
+                for (int shift = 0; ; shift = shift + 7) {
+                    byte c = block[i++];
+                    z = z | ((c & 0x7F) << shift);
+                    if (c >= 0) break;
+                }
+                id = id + ((z >>> 1) ^ -(z & 1));
+                float time = Float.intBitsToFloat( bits );
+                if ((time >= from) && (time <= to) && (id >= first) && (id <= last)) {
+                    v.spike( id, time );
+                }
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** Main program, see above
+     */
+    public static void main( String[] args ) {
+        if ((args.length != 1) && (args.length != 3) && (args.length != 5)) {
+            Errors.fatal( "usage: java RasterReader file [from to [first last]]" );
+        }
+        float from = Float.NEGATIVE_INFINITY;
+        float to = Float.POSITIVE_INFINITY;
+        int first = 0;
+        int last = Integer.MAX_VALUE;
+        try {
+            if (args.length >= 3) {
+                from = Float.parseFloat( args[1] );
+                to = Float.parseFloat( args[2] );
+            }
+            if (args.length == 5) {
+                first = Integer.parseInt( args[3] );
+                last = Integer.parseInt( args[4] );
+            }
+        } catch (NumberFormatException e) {
+            Errors.fatal( "not a number: " + e.getMessage() );
+        }
+        PrintStream out = new PrintStream(
+            new BufferedOutputStream( System.out, 1 << 16 ), false
+        );
+        try (RasterReader r = new RasterReader( Paths.get( args[0] ) )) {
+            r.scan( from, to, first, last, (int id, float time) -> {
+                out.print( time );
+                out.print( ' ' );
+                out.println( id );
+            } );
+        } catch (IOException e) {
+            Errors.fatal( args[0] + " -- " + e.getMessage() );
+        }
+        out.flush();
+    }
+}
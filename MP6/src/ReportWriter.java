@@ -0,0 +1,188 @@
+// ReportWriter.java
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/** Writes a simulation's reports on a thread of its own
+ *  @version: October 16, 2026
+ *  @see Simulation
+ *  @see SimulationOutput
+ *
+ *  Bytes written to a ReportWriter are copied into large blocks; each
+ *  full block, and the partly filled block at each {@code flush}, is
+ *  handed to a writer thread that writes it to a channel, such as a file
+ *  or standard output, and gives it back to be filled again.  So the
+ *  thread that simulates never waits for the output device, only for a
+ *  free block when all of them are waiting to be written, which bounds
+ *  the memory used when the device is slower than the simulation.
+ *
+ *  A simulation's {@code PrintStream} is put over a ReportWriter, so its
+ *  reports and its other messages stay in order.  Nothing reaches the
+ *  channel until it is flushed, and {@code close} waits for all of it to
+ *  be written; if the program ends without closing, a shutdown hook
+ *  does so.  Closing removes the hook and drops the blocks, so a program
+ *  that makes many writers, one per report file, does not keep them.
+ *  If writing fails, the rest of the output is discarded and the failure
+ *  is reported when the writer is closed.
+ */
+class ReportWriter extends OutputStream {
+
+    private final WritableByteChannel channel;
+    private final BlockingQueue <ByteBuffer> free;      // blocks to fill
+    private final BlockingQueue <ByteBuffer> full;      // blocks to write
+    private static final ByteBuffer END = ByteBuffer.allocate( 0 );
+    private ByteBuffer block;                           // being filled
+    private final Thread writer;
+    private final Thread hook;                          // closes at exit
+    private volatile IOException failure = null;
+    private boolean closed = false;
+
+    /** Write to a channel, with 16 blocks of 64K
+     *  @param channel where the output goes
+     */
+    ReportWriter( WritableByteChannel channel ) {
+        this( channel, 16, 1 << 16 );
+    }
+
+    /** Write to a channel
+     *  @param channel where the output goes
+     *  @param blocks how many blocks may be filled or waiting at once
+     *  @param size the size of each block, in bytes
+     */
+    ReportWriter( WritableByteChannel channel, int blocks, int size ) {
+        this.channel = channel;
+        free = new ArrayBlockingQueue <ByteBuffer> ( blocks );
+        full = new ArrayBlockingQueue <ByteBuffer> ( blocks + 1 );
+        for (int i = 1; i < blocks; i++) {
+            free.add( ByteBuffer.allocateDirect( size ) );
+        }
+        block = ByteBuffer.allocateDirect( size );
+        writer = new Thread( () -> drain(), "report writer" );
+        writer.setDaemon( true );
+        writer.start();
+        hook = new Thread( () -> close() );
+        Runtime.getRuntime().addShutdownHook( hook );
+    }
+
+    /** The writer thread: write each full block, until the end
+     */
+    private void drain() {
+        for (;;) {
+            ByteBuffer b = take( full );
+            if (b == END) return;
+            if (failure == null) {
+                try {
+                    while (b.hasRemaining()) channel.write( b );
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            b.clear();
+            put( free, b );
+        }
+    }
+
+    @Override
+    public synchronized void write( int b ) {
+        if (closed) return;     // nothing is written after close
+        if (!block.hasRemaining()) handOff();
+        block.put( (byte)b );
+    }
+
+    @Override
+    public synchronized void write( byte[] b, int off, int len ) {
+        if (closed) return;
+        while (len > 0) {
+            if (!block.hasRemaining()) handOff();
+            int n = Math.min( len, block.remaining() );
+            block.put( b, off, n );
+            off = off + n;
+            len = len - n;
+        }
+    }
+
+    /** Send what has been written so far to the writer thread
+     *  This does not wait for it to be written.
+     */
+    @Override
+    public synchronized void flush() {
+        if (!closed && (block.position() > 0)) handOff();
+    }
+
+    /** Write everything, and stop the writer thread
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        flush();
+        closed = true;
+        put( full, END );
+        boolean interrupted = false;
+        for (;;) {
+            try {
+                writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        free.clear();
+        block = null;
+        if (Thread.currentThread() != hook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook( hook );
+            } catch (IllegalStateException e) {
+                // the program is already exiting
+            }
+        }
+        if (failure != null) {
+            Errors.warning( "output -- " + failure.getMessage() );
+        }
+    }
+
+    /** Give the block to the writer thread, and take a free one
+     */
+    private void handOff() {
+        block.flip();
+        put( full, block );
+        block = take( free );
+    }
+
+    // the queues, ignoring interrupts, which must not lose output
+
+    private static ByteBuffer take( BlockingQueue <ByteBuffer> q ) {
+        boolean interrupted = false;
+        try {
+            for (;;) {
+                try {
+                    return q.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void put( BlockingQueue <ByteBuffer> q, ByteBuffer b ) {
+        boolean interrupted = false;
+        try {
+            for (;;) {
+                try {
+                    q.put( b );
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+// Simulation.java
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** One simulation: a neuron network, its simulator and its output
+ *  @version: October 16, 2026
+ *  @see NeuronNetwork
+ *  @see Simulator
+ *  @see SimulationOutput
+ *  @see ParameterSweep
+ *
+ *  Everything that a run changes belongs to some simulation: the
+ *  network owns the neurons and synapses, the simulator owns the pending
+ *  events and the choice of engine, the output owns the report schedule
+ *  and the neurons reported on, and the sweep owns the axes of any
+ *  parameter sweep.  Each neuron knows its simulation, so the objects of
+ *  two simulations never meet, and any number of simulations can be
+ *  built and run in one program, one after another or concurrently on
+ *  different threads.
+ *
+ *  Reports go to the stream given when the simulation is created, and
+ *  so do error messages: while a thread obeys the commands of a
+ *  simulation, {@link Errors} sends its messages to that simulation's
+ *  error stream, after the simulation's name, and counts them there.
+ */
+class Simulation {
+
+    /** Where this simulation prints its reports
+     */
+    final PrintStream out;
+
+    /** Where this simulation prints its error messages
+     */
+    final PrintStream err;
+
+    /** The name of its input, put before its error messages, or null
+     */
+    final String name;
+
+    /** The number of error messages it has printed
+     */
+    int errCount = 0;
+
+    final NeuronNetwork network;
+    final Simulator simulator;
+    final SimulationOutput output;
+    final ParameterSweep sweep;
+
+    /** Its firings and deliveries, for subscribers in this program
+     */
+    final SpikeStream spikes;
+
+    /** Create a simulation with an empty network and no pending events
+     *  @param out where its reports are to go
+     */
+    Simulation( PrintStream out ) {
+        this( out, System.err, null );
+    }
+
+    /** Create a simulation with its own error stream
+     *  @param out where its reports are to go
+     *  @param err where its error messages are to go
+     *  @param name the name of its input, or null
+     */
+    Simulation( PrintStream out, PrintStream err, String name ) {
+        this.out = out;
+        this.err = err;
+        this.name = name;
+        network = new NeuronNetwork( this );
+        simulator = new Simulator( this );
+        output = new SimulationOutput( this );
+        sweep = new ParameterSweep( this );
+        spikes = new SpikeStream();
+    }
+
+    /** Read a network description and its commands, and obey them
+     *  The reports are closed at the end of the input.  Meanwhile this
+     *  thread's error messages go to this simulation, see {@link Errors}.
+     *  @param sc the input
+     */
+    void obey( Tokenizer sc ) {
+        Simulation before = Errors.reportTo( this );
+        try {
+            network.initializeNetwork( sc );
+            output.close();
+        } finally {
+            Errors.reportTo( before );
+        }
+    }
+
+    /** Read a network description and its commands, and obey them
+     *  @param input the text, as it would be given on standard input
+     *  @return everything the simulation printed
+     */
+    static String runText( String input ) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream( bytes );
+        Simulation sim = new Simulation( out );
+        sim.obey( new Tokenizer( input ) );
+        out.flush();
+        return bytes.toString();
+    }
+
+    /** Simulate several independent input files concurrently
+     *  Each file gets its own {@code Simulation}, and the simulations run
+     *  on a pool with a thread per processor, so one program pays the
+     *  cost of starting up and warming up just once for all of them.
+     *  Each file is read as it is simulated, and its reports and errors
+     *  are written in the order of the files: those of the first file as
+     *  it runs, and those of each later one as soon as all before it are
+     *  written.  A simulation that fails is reported after its output,
+     *  and the others carry on.
+     *  @param files the name of each file
+     *  @param out where the reports go
+     *  @param err where the error messages go, each after its file's name
+     *  @return the number of simulations that failed
+     */
+    static int runAll( List <String> files, PrintStream out, PrintStream err ) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(
+            Math.max( 1, Math.min( threads, files.size() ) )
+        );
+        List <Slot> outs = new ArrayList <Slot> ();
+        List <Slot> errs = new ArrayList <Slot> ();
+        List <Future <String>> runs = new ArrayList <Future <String>> ();
+        for (String file: files) {
+            Slot o = new Slot();
+            Slot e = new Slot();
+            outs.add( o );
+            errs.add( e );
+            runs.add( pool.submit( () -> runFile( file, o, e ) ) );
+        }
+        int failed = 0;
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                outs.get( i ).open( out );
+                errs.get( i ).open( err );
+                String failure;
+                try {
+                    failure = runs.get( i ).get();
+                } catch (ExecutionException e) {
+                    failure = e.getCause().toString();
+                }
+                out.flush();
+                if (failure != null) {
+                    err.println( "Error: " + files.get( i ) + ": " + failure );
+                    failed = failed + 1;
+                }
+                err.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+        return failed;
+    }
+
+    /** Simulate one file of {@code runAll}
+     *  @return why the simulation failed, or null if it did not
+     */
+    private static String runFile( String file, Slot out, Slot err ) {
+        PrintStream o = new PrintStream( out );
+        PrintStream e = new PrintStream( err );
+        Simulation sim = new Simulation( o, e, file );
+        try (FileChannel in = FileChannel.open( Paths.get( file ) )) {
+            sim.obey( new Tokenizer( in ) );
+            return null;
+        } catch (NoSuchFileException x) {
+            return "file not found";
+        } catch (IOException | RuntimeException x) {
+            return "simulation failed: " + x;
+        } finally {
+            o.flush();
+            e.flush();
+        }
+    }
+
+    /** The output of one simulation of {@code runAll}
+     *  Until its turn comes it is kept here; when it comes, what was kept
+     *  is written out, and everything after goes straight through.
+     */
+    private static class Slot extends OutputStream {
+        private ByteArrayOutputStream kept = new ByteArrayOutputStream();
+        private OutputStream live = null;
+
+        /** Its turn has come: write everything to the given stream
+         */
+        synchronized void open( OutputStream to ) {
+            try {
+                kept.writeTo( to );
+            } catch (IOException e) {
+                // a PrintStream records its own errors
+            }
+            kept = null;
+            live = to;
+        }
+
+        public synchronized void write( int b ) throws IOException {
+            if (live != null) {
+                live.write( b );
+            } else {
+                kept.write( b );
+            }
+        }
+
+        public synchronized void write( byte[] b, int off, int len )
+            throws IOException {
+            if (live != null) {
+                live.write( b, off, len );
+            } else {
+                kept.write( b, off, len );
+            }
+        }
+
+        public synchronized void flush() throws IOException {
+            if (live != null) live.flush();
+        }
+    }
+}
@@ -1,8 +1,16 @@
 // SimulationOutput.java
 
-import java.util.LinkedList;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /** SimulationOutput creates an appropriate  output for the neuron network, MP6
  *  @author: Raquib Talukder
@@ -15,112 +23,439 @@ import java.util.Scanner;
  *  This code is an updated version of MP5 to fit the requirements of the 
  *  new simulation framework from lecture on April 20th. 
  *  This code is modified to meet the requirements of MP6.
+ *  Each {@link Simulation} has its own output, printed to its own stream.
+ *  Each row of the report is filled into an array of bytes and printed
+ *  in one piece, which a {@link ReportWriter} can take without waiting.
+ *
+ *  Each {@code output} command starts a report of its own, with its own
+ *  interval and length, so several can run at once:
+ *  <PRE>
+ *  output interval length [selector]... [&gt; file]
+ *  </PRE>
+ *  A selector is a neuron name, a glob such as {@code N1*} or
+ *  {@code N?2}, a regular expression after {@code ~}, or
+ *  {@code sample k} for k neurons picked at random; the report shows the
+ *  neurons declared so far that any selector picks, in the order they
+ *  were declared, or all of them if there is no selector.  A report
+ *  with a file is written there, by a {@link ReportWriter} of its own.
+ *  Reports read the neurons' fire counts without resetting them, so
+ *  only the neurons a report shows cost it anything, and two reports
+ *  showing the same neuron do not disturb each other.
+ *
+ *  {@code output stats interval length [each] [selector]... [> file]}
+ *  reports statistics of the neurons picked in place of symbols: at each
+ *  interval, a line for the group of them, and with {@code each}, a
+ *  line for each of them.  A line gives the firings in the interval,
+ *  the rate per neuron per unit of time, that rate smoothed over about
+ *  ten intervals, the mean and standard deviation of the intervals
+ *  between firings, from {@link FiringStats}, and the Fano factor, the
+ *  variance over the mean of the firings per interval so far.  All of
+ *  these are kept as running sums, so no firing is remembered.
  */
 
-class SimulationOutput extends NeuronNetwork {
+class SimulationOutput {
     
-    static float interval = (float) 0.0;
-    static float length = (float) 0.0;
-    // list of all neurons 
-    private static List <Neuron> outputList 
-                        = new LinkedList <Neuron> ();
-    // different signs that can be printed out
-    private static final String [] outputValues = {"| ", "|-", "|="};
+    // the simulation reported on, and where the reports go
+    private final Simulation sim;
+    private final PrintStream out;
+
+    // the reports started by output commands
+    private final List <Report> reports = new ArrayList <Report> ();
+
+    // different signs that can be printed out, each with its tab
+    private static final byte [][] outputValues = {
+        {'|', ' ', '\t'}, {'|', '-', '\t'}, {'|', '=', '\t'}
+    };
+    private static final byte [] newline = System.lineSeparator().getBytes();
     
-    private SimulationOutput() {}
+    SimulationOutput(Simulation sim) {
+        this.sim = sim;
+        this.out = sim.out;
+    }
     
-    public static void setOutput(Scanner sc) {
+    public void setOutput(Tokenizer sc) {
         
+        // output raster f records every firing instead, see SpikeRaster
+        if (sc.hasNext("raster")) {
+            sc.next();
+            SpikeRaster.command(sim, sc);
+            return;
+        }
+
+        boolean stats = sc.hasNext("stats");
+        if (stats) sc.next();
+
         // get the interval and length of the simulation run
-        interval = ScanSupport.nextFloat(sc, () -> "- not a float");
-        length = ScanSupport.nextFloat(sc, () -> "- not a float");
-        
-        // since all the neurons have been scheduled
-        // we're trying to put them in the outputlist to be able
-        // to search for infomation about individual neurons
-        for (Neuron n : SimulationOutput.neurons){
-            outputList.add(n);
+        float interval = ScanSupport.nextFloat(sc, () -> "- not a float");
+        float length = ScanSupport.nextFloat(sc, () -> "- not a float");
+        String rest = sc.nextLine().trim();
+        String [] words = rest.isEmpty() ? new String [0] : rest.split("\\s+");
+        String where = "output " + (stats ? "stats " : "") + interval + " " + length + " " + rest;
+
+        // pick the neurons, in the order they were declared
+        List <Neuron> all = sim.network.neuronIndex;
+        boolean [] picked = new boolean [all.size()];
+        boolean any = false;
+        String file = null;
+        boolean each = false;
+        for (int i = 0; i < words.length; i++) {
+            String w = words[i];
+            if (stats && w.equals("each") && (i == 0)) {
+                each = true;
+            } else if (w.equals(">") && (i + 1 == words.length - 1)) {
+                file = words[++i];
+            } else if (w.startsWith(">") && (w.length() > 1) && (i == words.length - 1)) {
+                file = w.substring(1);
+            } else if (w.equals("sample") && (i + 1 < words.length)) {
+                int k;
+                try {
+                    k = Integer.parseInt(words[++i]);
+                } catch (NumberFormatException e) {
+                    Errors.warning(where + " -- sample " + words[i] + " is not a count");
+                    return;
+                }
+                sample(picked, k);
+                any = true;
+            } else if (w.startsWith("~") || (w.indexOf('*') >= 0) || (w.indexOf('?') >= 0)) {
+                Pattern p;
+                try {
+                    p = w.startsWith("~") ? Pattern.compile(w.substring(1)) : glob(w);
+                } catch (PatternSyntaxException e) {
+                    Errors.warning(where + " -- bad pattern " + w);
+                    return;
+                }
+                for (Neuron n : all) {
+                    if (p.matcher(n.name).matches()) picked[n.id] = true;
+                }
+                any = true;
+            } else {
+                Neuron n = sim.network.findNeuron(w);
+                if (n == null) {
+                    Errors.warning(where + " -- " + w + " is not a neuron");
+                    return;
+                }
+                picked[n.id] = true;
+                any = true;
+            }
+        }
+
+        List <Neuron> shown = new ArrayList <Neuron> ();
+        if (!any) {
+            // since all the neurons have been scheduled
+            // we're trying to put them in the outputlist to be able
+            // to search for infomation about individual neurons
+            shown.addAll(sim.network.neurons);
+        } else {
+            for (Neuron n : all) {
+                if (picked[n.id]) shown.add(n);
+            }
+        }
+
+        PrintStream to = out;
+        if (file != null) {
+            try {
+                to = new PrintStream(new ReportWriter(FileChannel.open(
+                    Paths.get(file),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING
+                )));
+            } catch (IOException e) {
+                Errors.warning(where + " -- " + e.getMessage());
+                return;
+            }
+        }
+        Report r;
+        if (stats) {
+            if (sim.simulator.stats == null) {
+                sim.simulator.stats = new FiringStats(all.size());
+            }
+            r = new StatsReport(shown, interval, length, to, each);
+        } else {
+            r = new Report(shown, interval, length, to);
         }
+        reports.add(r);
+
         // start the simulation with time 1
         //Simulator.schedule(1, (float time) -> displayHeaders(time));
-        Simulator.schedule(
+        sim.simulator.schedule(
             new Simulator.Event(1) {
                 void trigger() {
-                    displayHeaders(1);
+                    r.displayHeaders(1);
                 }
             }
         );
     }
+
+    // pick k of the neurons at random, each as likely as any other,
+    // always the same ones for the same network
+    private void sample(boolean [] picked, int k) {
+        SplittableRandom random = new SplittableRandom(picked.length);
+        int left = picked.length;
+        for (int i = 0; (i < picked.length) && (k > 0); i++) {
+            // pick this one with probability k / left
+            if (random.nextInt(left) < k) {
+                picked[i] = true;
+                k = k - 1;
+            }
+            left = left - 1;
+        }
+    }
+
+    // a glob, where * is any text and ? any one character, as a pattern
+    private static Pattern glob(String g) {
+        StringBuilder p = new StringBuilder();
+        int from = 0;
+        for (int i = 0; i < g.length(); i++) {
+            char c = g.charAt(i);
+            if ((c == '*') || (c == '?')) {
+                if (i > from) p.append(Pattern.quote(g.substring(from, i)));
+                p.append((c == '*') ? ".*" : ".");
+                from = i + 1;
+            }
+        }
+        if (g.length() > from) p.append(Pattern.quote(g.substring(from)));
+        return Pattern.compile(p.toString());
+    }
+
+    /** Make sure what the reports have printed is on its way
+     */
+    void flush() {
+        for (Report r : reports) {
+            if (r.out != out) r.out.flush();
+        }
+    }
+
+    /** Finish the reports written to files, the spike raster, and the
+     *  spike stream
+     */
+    void close() {
+        for (Report r : reports) {
+            if (r.out != out) r.out.close();
+        }
+        reports.clear();
+        SpikeRaster.close(sim);
+        sim.spikes.close();
+    }
+
+    /** One report, started by one output command
+     */
+    private class Report {
+        // the number of the report, in the order they were started
+        final int number = reports.size();
+        final float interval;
+        final float length;
+        final PrintStream out;
+        // the neurons shown, and their fire counts at the last row
+        final Neuron [] outputList;
+        final int [] seen;
+        // one row of the report, filled in and then written in one piece
+        private final byte [] row;
+
+        Report(List <Neuron> neurons, float interval, float length, PrintStream out) {
+            this.interval = interval;
+            this.length = length;
+            this.out = out;
+            outputList = neurons.toArray(new Neuron [0]);
+            seen = new int [outputList.length];
+            row = new byte [outputList.length * 3 + newline.length];
+        }
     
-    
-    private static void displayHeaders (float t){
-        for (Neuron o: outputList){
-            String objName = o.name;
+        void displayHeaders (float t){
+            for (Neuron o: outputList){
+                String objName = o.name;
             
-            // if length of neuron is >4 char
-            // shorten it
-            if (objName.length() >  4) {
-                objName = objName.substring(0, 4);
-            }
-            // name is of acceptable length
-            System.out.append(' ');
-            System.out.append(objName);
+                // if length of neuron is >4 char
+                // shorten it
+                if (objName.length() >  4) {
+                    objName = objName.substring(0, 4);
+                }
+                // name is of acceptable length
+                out.append(' ');
+                out.append(objName);
             
-            // name is too short. make sure spacing is still kept standard
-            if (objName.length() < 4){
-                System.out.append("\t".substring(0, 4 - objName.length()));
-            }
+                // name is too short. make sure spacing is still kept standard
+                if (objName.length() < 4){
+                    out.append("\t".substring(0, 4 - objName.length()));
+                }
             
-            System.out.append(' ');
-        }
-        System.out.println();
+                out.append(' ');
+            }
+            out.println();
         
-        displayOutput(t);
-    }
+            displayOutput(t);
+        }
     
-    // calculate what symbol the neuron will get
-    private static void displayOutput(float t){
-        // find out how many times the neuron fired
-        // and then pass it to outputSymbol
-        for (Neuron o : outputList ){
-            int count = o.getCount();
-            outputSymbol(count);
-        }
-        System.out.println();
-
-        // keep simulator running until time == length
-        if (t < length) {
-            Simulator.schedule(
-                    new Simulator.Event(t + interval) {
-                        @Override
-                        void trigger() {
-                            displayOutput(time);
+        // print a row, and schedule the next
+        void displayOutput(float t){
+            displayRow(t);
+            SpikeStream stream = sim.simulator.stream;
+            if (stream != null) stream.interval(number, t);
+
+            // keep simulator running until time == length
+            if (t < length) {
+                sim.simulator.schedule(
+                        new Simulator.Event(t + interval) {
+                            @Override
+                            void trigger() {
+                                displayOutput(time);
+                            }
                         }
-                    }
-            );
-            //Simulator.schedule(t + interval, (float time) -> displayOutput(time));
+                );
+                //Simulator.schedule(t + interval, (float time) -> displayOutput(time));
+            }
         }
-    }
-    
-    // figure out the output for the neuron by counting the 
-    // times it fired
-    private static void outputSymbol(int count){
-        // output : |=
-        // neuron fired >2 times
-        if (count >= 2){
-            System.out.append(outputValues[2]);
-        }
-        // output: |-
-        // neuron only fired once
-        else if(count == 1){
-            System.out.append(outputValues[1]);
-        }
-        // output: | 
-        // neuron didn't fire
-        else {
-            System.out.append(outputValues[0]);
+
+        // calculate what symbol the neuron will get
+        void displayRow(float t){
+            // find out how many times the neuron fired since the last row
+            // and then pass it to outputSymbol
+            int at = 0;
+            for (int i = 0; i < outputList.length; i++){
+                int fired = outputList[i].fired();
+                at = outputSymbol(fired - seen[i], at);
+                seen[i] = fired;
+            }
+            System.arraycopy(newline, 0, row, at, newline.length);
+            out.write(row, 0, at + newline.length);
         }
+    
+        // figure out the output for the neuron by counting the 
+        // times it fired, and put it in the row at the given place
+        // returns the place after it
+        private int outputSymbol(int count, int at){
+            byte [] symbol;
+            // output : |=
+            // neuron fired >2 times
+            if (count >= 2){
+                symbol = outputValues[2];
+            }
+            // output: |-
+            // neuron only fired once
+            else if(count == 1){
+                symbol = outputValues[1];
+            }
+            // output: | 
+            // neuron didn't fire
+            else {
+                symbol = outputValues[0];
+            }
         
-        System.out.append( '\t' );
+            row[at] = symbol[0];
+            row[at + 1] = symbol[1];
+            row[at + 2] = symbol[2];
+            return at + 3;
+        }
+    }
+    /** A report of statistics, see above
+     */
+    private class StatsReport extends Report {
+        // the weight of the latest interval in the smoothed rates
+        private static final double SMOOTHING = 0.1;
+
+        private final boolean each;
+        private int rows = 0;
+        // for each neuron shown: its smoothed rate, and the running mean
+        // and squared deviations of its firings per interval
+        private final double [] smoothed;
+        private final double [] countMean;
+        private final double [] countM2;
+        // the same for the group as a whole
+        private double groupSmoothed = 0.0;
+        private double groupMean = 0.0;
+        private double groupM2 = 0.0;
+        private final StringBuilder line = new StringBuilder();
+
+        StatsReport(List <Neuron> neurons, float interval, float length,
+                    PrintStream out, boolean each) {
+            super(neurons, interval, length, out);
+            this.each = each;
+            smoothed = new double [outputList.length];
+            countMean = new double [outputList.length];
+            countM2 = new double [outputList.length];
+        }
+
+        @Override
+        void displayHeaders(float t){
+            out.println("time\tneurons\tspikes\trate\tsmoothed\tisi\tsd\tfano");
+            displayOutput(t);
+        }
+
+        @Override
+        void displayRow(float t){
+            FiringStats stats = sim.simulator.stats;
+            rows = rows + 1;
+            long total = 0;
+            // the intervals between firings, pooled over the group
+            long isiCount = 0;
+            double isiMean = 0.0;
+            double isiM2 = 0.0;
+            for (int i = 0; i < outputList.length; i++){
+                Neuron o = outputList[i];
+                int fired = o.fired();
+                int count = fired - seen[i];
+                seen[i] = fired;
+                total = total + count;
+
+                double rate = count / interval;
+                smoothed[i] = (rows == 1) ? rate
+                    : smoothed[i] + SMOOTHING * (rate - smoothed[i]);
+                double d = count - countMean[i];
+                countMean[i] = countMean[i] + d / rows;
+                countM2[i] = countM2[i] + d * (count - countMean[i]);
+
+                int k = stats.intervals(o.id);
+                double m = stats.meanInterval(o.id);
+                double m2 = stats.squaredDeviations(o.id);
+                if (k > 0) {
+                    // Chan's combination of two sets of running sums
+                    long n = isiCount + k;
+                    double delta = m - isiMean;
+                    isiMean = isiMean + delta * k / n;
+                    isiM2 = isiM2 + m2 + delta * delta * isiCount * k / n;
+                    isiCount = n;
+                }
+                if (each) {
+                    line.setLength(0);
+                    line.append(' ').append(o.name);
+                    format(1, count, rate, smoothed[i], k, m, m2,
+                           countMean[i], countM2[i]);
+                }
+            }
+
+            double rate = (outputList.length == 0) ? 0.0
+                : total / (interval * outputList.length);
+            groupSmoothed = (rows == 1) ? rate
+                : groupSmoothed + SMOOTHING * (rate - groupSmoothed);
+            double d = total - groupMean;
+            groupMean = groupMean + d / rows;
+            groupM2 = groupM2 + d * (total - groupMean);
+            line.setLength(0);
+            line.append(t);
+            format(outputList.length, total, rate, groupSmoothed,
+                   isiCount, isiMean, isiM2, groupMean, groupM2);
+        }
+
+        // finish a line of the report and print it, - for what is unknown
+        private void format(int neurons, long spikes, double rate, double smooth,
+                            long isiCount, double isiMean, double isiM2,
+                            double countMean, double countM2){
+            line.append('\t').append(neurons);
+            line.append('\t').append(spikes);
+            line.append('\t').append(number(rate));
+            line.append('\t').append(number(smooth));
+            line.append('\t').append((isiCount > 0) ? number(isiMean) : "-");
+            line.append('\t').append(
+                (isiCount > 1) ? number(Math.sqrt(isiM2 / (isiCount - 1))) : "-"
+            );
+            line.append('\t').append(
+                ((rows > 1) && (countMean > 0.0))
+                    ? number(countM2 / (rows - 1) / countMean) : "-"
+            );
+            out.println(line);
+        }
+
+        private String number(double x){
+            return String.format(Locale.ROOT, "%.4g", x);
+        }
     }
 }
@@ -0,0 +1,244 @@
+// SpikeRaster.java
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/** Records every firing of every neuron in a compact binary file
+ *  @version: October 16, 2026
+ *  @see RasterReader
+ *  @see SimulationOutput
+ *
+ *  The command {@code output raster f} records each firing from then on,
+ *  as the neuron id and the time, in the file f, and
+ *  {@code output raster off} finishes the file.  A file is also finished
+ *  at the end of the input, or by another {@code output raster}; until
+ *  then it has no index and cannot be read.  Neuron ids are the order of
+ *  declaration, starting at 0.  Since firings must be recorded in time
+ *  order, a run with a raster uses the sequential compiled engine in
+ *  place of the parallel and time warp engines.
+ *
+ *  Neurons are divided by id into groups of {@code GROUP}, and the
+ *  firings of each group are packed in blocks of their own, of up to
+ *  {@code BLOCK} firings, so a block holds the firings of at most
+ *  {@code GROUP} neurons, and a scan for a range of neurons reads only
+ *  the blocks of the groups in that range.  In a block, each
+ *  firing is two varints, 7 bits to a byte, low bits first: the change
+ *  in the bits of the time, as {@code Float.floatToIntBits}, from the
+ *  previous firing, then the change in neuron id, both zigzag encoded,
+ *  and the first firing of a block is given as the change from zero.
+ *  The bits of a positive float grow with the float, so firings at
+ *  nearby times take a byte or two each, and firings at the same time
+ *  take one byte for the time.  The file is little-endian:
+ *  <PRE>
+ *  int magic, version, neurons, block size, group size
+ *  the blocks, one after another, each in time order; the blocks of a
+ *  group are in time order, but blocks of different groups overlap
+ *  the index, for each block:
+ *      long offset, int length in bytes, int firings,
+ *      float earliest time, float latest time, int lowest id, int highest id
+ *  long offset of the index, int blocks, int magic
+ *  </PRE>
+ *  so a reader can find the blocks that hold a range of times or
+ *  neurons, from the index at the end, and decode only those.
+ */
+class SpikeRaster {
+
+    static final int MAGIC = 0x524B5053;        // "SPKR"
+    static final int VERSION = 2;
+    static final int HEADER = 5 * 4;
+    static final int INDEX_ENTRY = 8 + 6 * 4;
+    static final int FOOTER = 8 + 4 + 4;
+    static final int BLOCK = 4096;
+    static final int GROUP = 1024;
+
+    private final FileChannel channel;
+    private long offset = HEADER;               // where the next block goes
+    private IOException failure = null;         // the first write that failed
+
+    /** The block being filled for one group of neurons
+     */
+    private static class Block {
+        byte[] bytes = new byte[256];
+        int length = 0;
+        int count = 0;
+        int lastBits = 0;
+        int lastId = 0;
+        float earliest;
+        float latest;
+        int lowId;
+        int highId;
+    }
+
+    // the block being filled for each group, by id / GROUP, or null
+    private Block[] filling;
+
+    // the index, one entry per block written
+    private ByteBuffer index = ByteBuffer.allocate( 64 * INDEX_ENTRY )
+                                         .order( ByteOrder.LITTLE_ENDIAN );
+    private int blocks = 0;
+
+    /** Start a raster file
+     *  @param path the file
+     *  @param neurons the number of neurons in the network
+     */
+    SpikeRaster( Path path, int neurons ) throws IOException {
+        channel = FileChannel.open(
+            path,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        );
+        ByteBuffer b = ByteBuffer.allocate( HEADER ).order( ByteOrder.LITTLE_ENDIAN );
+        b.putInt( MAGIC ).putInt( VERSION ).putInt( neurons ).putInt( BLOCK ).putInt( GROUP );
+        b.flip();
+        write( b, 0 );
+        filling = new Block[(neurons + GROUP - 1) / GROUP];
+    }
+
+    /** Scan an {@code output raster} command
+     *  @param sim the simulation to record
+     *  @param sc the scanner, positioned just after {@code raster}
+     */
+    static void command( Simulation sim, Tokenizer sc ) {
+        String file = sc.hasNext() ? sc.next() : null;
+        ScanSupport.lineEnd(
+            sc,
+            () -> "output raster " + file
+        );
+        if (file == null) {
+            Errors.warning( "output raster -- expected a file name" );
+            return;
+        }
+        close( sim );
+        if ("off".equals( file )) return;
+        try {
+            sim.simulator.raster = new SpikeRaster(
+                Paths.get( file ), sim.network.neuronIndex.size()
+            );
+        } catch (IOException e) {
+            Errors.warning( "output raster " + file + " -- " + e.getMessage() );
+        }
+    }
+
+    /** Finish the raster file of a simulation, if it has one
+     */
+    static void close( Simulation sim ) {
+        SpikeRaster r = sim.simulator.raster;
+        if (r == null) return;
+        sim.simulator.raster = null;
+        try {
+            r.finish();
+        } catch (IOException e) {
+            Errors.warning( "output raster -- " + e.getMessage() );
+        }
+    }
+
+    /** Record a firing
+     *  @param id the neuron id
+     *  @param time when it fired
+     */
+    void spike( int id, float time ) {
+        int g = id / GROUP;
+        if (g >= filling.length) {
+            // a neuron declared after the raster began
+            filling = Arrays.copyOf( filling, Math.max( g + 1, filling.length * 2 ) );
+        }
+        Block k = filling[g];
+        if (k == null) {
+            k = new Block();
+            filling[g] = k;
+        }
+        int bits = Float.floatToIntBits( time );
+        if (k.count == 0) {
+            k.earliest = time;
+            k.latest = time;
+            k.lowId = id;
+            k.highId = id;
+        }
+        if (k.length + 10 > k.bytes.length) k.bytes = Arrays.copyOf( k.bytes, k.bytes.length * 2 );
+        int dBits = bits - k.lastBits;
+        int dId = id - k.lastId;
+        k.length = varint( k.bytes, k.length, (dBits << 1) ^ (dBits >> 31) );
+        k.length = varint( k.bytes, k.length, (dId << 1) ^ (dId >> 31) );
+        k.lastBits = bits;
+        k.lastId = id;
+        if (time < k.earliest) k.earliest = time;
+        if (time > k.latest) k.latest = time;
+        if (id < k.lowId) k.lowId = id;
+        if (id > k.highId) k.highId = id;
+        k.count = k.count + 1;
+        if (k.count == BLOCK) endBlock( k );
+    }
+
+    /** Put v into b at i as a varint
+     *  @return the index after it
+     */
+    private static int varint( byte[] b, int i, int v ) {
+        while ((v & ~0x7F) != 0) {
+            b[i++] = (byte)((v & 0x7F) | 0x80);
+            v = v >>> 7;
+        }
+        b[i++] = (byte)v;
+        return i;
+    }
+
+    /** Write a block being filled, and note it in the index
+     */
+    private void endBlock( Block k ) {
+        if (k.count == 0) return;
+        if (index.remaining() < INDEX_ENTRY) {
+            ByteBuffer bigger = ByteBuffer.allocate( index.capacity() * 2 )
+                                          .order( ByteOrder.LITTLE_ENDIAN );
+            index.flip();
+            index = bigger.put( index );
+        }
+        index.putLong( offset ).putInt( k.length ).putInt( k.count );
+        index.putFloat( k.earliest ).putFloat( k.latest );
+        index.putInt( k.lowId ).putInt( k.highId );
+        blocks = blocks + 1;
+        if (failure == null) {
+            // report it when the file is finished, not in the middle of a run
+            try {
+                write( ByteBuffer.wrap( k.bytes, 0, k.length ), offset );
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        offset = offset + k.length;
+        k.length = 0;
+        k.count = 0;
+        k.lastBits = 0;
+        k.lastId = 0;
+    }
+
+    /** Write the last block, the index and the footer, and close the file
+     */
+    void finish() throws IOException {
+        try {
+            for (Block k: filling) {
+                if (k != null) endBlock( k );
+            }
+            if (failure != null) throw failure;
+            index.flip();
+            long at = offset;
+            write( index, at );
+            ByteBuffer f = ByteBuffer.allocate( FOOTER ).order( ByteOrder.LITTLE_ENDIAN );
+            f.putLong( at ).putInt( blocks ).putInt( MAGIC );
+            f.flip();
+            write( f, at + index.limit() );
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void write( ByteBuffer b, long at ) throws IOException {
+        while (b.hasRemaining()) {
+            at = at + channel.write( b, at );
+        }
+    }
+}
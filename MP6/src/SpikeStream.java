@@ -0,0 +1,159 @@
+// SpikeStream.java
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/** Publishes a simulation's activity to subscribers in the same program
+ *  @version: October 16, 2026
+ *  @see Simulation
+ *  @see SimulationOutput
+ *
+ *  Each {@link Simulation} has a SpikeStream, {@code sim.spikes}, which is
+ *  a {@code Flow.Publisher} of {@link Batch}es of activity: the firings
+ *  of neurons, the deliveries of input to neurons, and the rows of the
+ *  output reports, in the order they are simulated.  It is built on a
+ *  {@code SubmissionPublisher}, so each subscriber gets its batches on
+ *  a thread of the publisher's executor, has a bounded buffer of them,
+ *  and receives only as many as it has requested.  When a subscriber's
+ *  buffer is full, the simulation waits for it, so nothing is lost and
+ *  a slow subscriber slows the simulation instead.
+ *
+ *  Whether anybody is subscribed is looked at as each run begins; a
+ *  subscriber who arrives during a run gets activity from the next.
+ *  With no subscribers the simulator holds no stream, so firing costs
+ *  one test of a null field and nothing is allocated.  As with a
+ *  {@link SpikeRaster}, a run with subscribers uses the sequential
+ *  compiled engine in place of the parallel and time warp engines.
+ *  Deliveries are reported as the engines apply them: several synapses
+ *  reaching one neuron at the same time may be reported as one
+ *  delivery of their total strength, and the secondary synapses, which
+ *  change strengths, are not reported.  The partly filled batch is
+ *  published at the end of each run, and subscribers are told of the
+ *  end when the simulation's output is closed.
+ */
+class SpikeStream implements Flow.Publisher <SpikeStream.Batch> {
+
+    /** The number of activities in a full batch
+     */
+    static final int BATCH = 1024;
+
+    /** The kinds of activity
+     */
+    static final byte FIRE = 0;         // neuron id fired
+    static final byte DELIVERY = 1;     // neuron id received input of strength value
+    static final byte INTERVAL = 2;     // output report id printed a row
+
+    /** A batch of activity, in the order simulated
+     *  Activity i is of kind {@code kind[i]}, to the neuron or report
+     *  {@code id[i]}, at time {@code time[i]}; for a delivery,
+     *  {@code value[i]} is its strength.  Each batch goes to every
+     *  subscriber, who must not change it.
+     */
+    static final class Batch {
+        final byte[] kind = new byte[BATCH];
+        final int[] id = new int[BATCH];
+        final float[] time = new float[BATCH];
+        final float[] value = new float[BATCH];
+        int size = 0;
+
+        /** The number of activities in this batch
+         */
+        public int size() {
+            return size;
+        }
+    }
+
+    private final Executor executor;
+    private final int buffer;
+    private SubmissionPublisher <Batch> publisher = null;  // made when first wanted
+    private Batch batch = null;                           // being filled
+
+    /** A stream publishing on the common pool, each subscriber buffering
+     *  up to {@code Flow.defaultBufferSize()} batches
+     */
+    SpikeStream() {
+        this( ForkJoinPool.commonPool(), Flow.defaultBufferSize() );
+    }
+
+    /** A stream
+     *  @param executor what runs the subscribers
+     *  @param buffer the most batches buffered for each subscriber
+     */
+    SpikeStream( Executor executor, int buffer ) {
+        this.executor = executor;
+        this.buffer = buffer;
+    }
+
+    @Override
+    public synchronized void subscribe( Flow.Subscriber <? super Batch> s ) {
+        if (publisher == null) {
+            publisher = new SubmissionPublisher <Batch> ( executor, buffer );
+        }
+        publisher.subscribe( s );
+    }
+
+    /** Whether anybody is subscribed
+     */
+    synchronized boolean listening() {
+        return (publisher != null) && publisher.hasSubscribers();
+    }
+
+    // the hooks, called only while the simulator holds this stream
+
+    /** Neuron id fired at the given time
+     */
+    void fire( int id, float time ) {
+        add( FIRE, id, time, 0.0f );
+    }
+
+    /** Neuron id received input of the given strength at the given time
+     */
+    void deliver( int id, float time, float strength ) {
+        add( DELIVERY, id, time, strength );
+    }
+
+    /** Output report id printed its row for the given time
+     */
+    void interval( int id, float time ) {
+        add( INTERVAL, id, time, 0.0f );
+    }
+
+    private void add( byte kind, int id, float time, float value ) {
+        Batch b = batch;
+        if (b == null) {
+            b = new Batch();
+            batch = b;
+        }
+        int i = b.size;
+        b.kind[i] = kind;
+        b.id[i] = id;
+        b.time[i] = time;
+        b.value[i] = value;
+        b.size = i + 1;
+        if (b.size == BATCH) flush();
+    }
+
+    /** Publish the batch being filled, waiting for room if need be
+     */
+    void flush() {
+        Batch b = batch;
+        if (b == null) return;
+        batch = null;
+        SubmissionPublisher <Batch> p;
+        synchronized (this) {
+            p = publisher;
+        }
+        if (p != null) p.submit( b );
+    }
+
+    /** Publish what is left and tell the subscribers there is no more
+     */
+    void close() {
+        flush();
+        synchronized (this) {
+            if (publisher != null) publisher.close();
+        }
+    }
+}
@@ -0,0 +1,487 @@
+// TimeWarpEngine.java
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Optimistic (Time Warp) parallel simulation of a compiled network
+ *  @version: October 16, 2026
+ *  @see CompiledNetwork
+ *  @see ParallelEngine
+ *  @see Simulator
+ *
+ *  The network is split among worker threads as by the
+ *  {@link ParallelEngine}, but the workers do not wait for lookahead.
+ *  Each simply simulates its own events in (time, payload) order as far
+ *  as it can, saving the state of the neuron or synapse each event
+ *  changes.  When a spike arrives from another worker with an earlier
+ *  key than events already simulated, those events are rolled back: the
+ *  saved states are restored, the events go back into the queue, and
+ *  every spike they sent is cancelled.  A cancelled spike for this
+ *  worker is simply dropped from its queue; one for another worker is
+ *  cancelled by sending an anti-message, which annihilates the spike on
+ *  arrival, rolling that worker back too if it had already simulated it.
+ *
+ *  Workers run in rounds of at most {@code BATCH} events and trade
+ *  spikes and anti-messages between rounds.  Global virtual time (GVT),
+ *  the earliest time of any unsimulated event or message in transit, is
+ *  computed between rounds; nothing before GVT can be rolled back, so the
+ *  saved states and sent-spike logs of earlier events are discarded then
+ *  (fossil collection).  Workers never run past the next
+ *  {@code Simulator.Event}, which is triggered once GVT has passed it, so
+ *  reports see exactly the state of a sequential run.  Because the events
+ *  each worker finally keeps are the ones a sequential run would take, in
+ *  the same order, the results are identical to the sequential compiled
+ *  engine even across zero-delay synapses.
+ */
+class TimeWarpEngine {
+
+    // events per worker per round; bounds how far optimism runs ahead
+    private static final int BATCH = 4096;
+
+    private final Simulator simulator;
+    private final CompiledNetwork net;
+    private final Worker[] workers;
+    private final int[] owner;      // worker of each neuron
+    private final int[] edgeOwner;  // worker of each edge
+    private int round = 0;          // number of rounds simulated
+
+    /** Split a compiled network among the given number of workers
+     *  @param simulator the simulator holding the pending events
+     *  @param net the network
+     *  @param count the number of worker threads, at least one
+     */
+    TimeWarpEngine( Simulator simulator, CompiledNetwork net, int count ) {
+        this.simulator = simulator;
+        this.net = net;
+        owner = ParallelEngine.partition( net, count );
+        edgeOwner = ParallelEngine.edgeOwners( net, owner );
+        workers = new Worker[count];
+        for (int w = 0; w < count; w++) {
+            workers[w] = new Worker( w );
+        }
+    }
+
+    /** Run the simulation until no events of any kind remain
+     *  Primitive events already scheduled with the {@link Simulator} are
+     *  taken over first; {@code Simulator.Event}s stay with the
+     *  simulator and are triggered between rounds.  If the simulator
+     *  stops sooner, workers run no further than its stop time, and once
+     *  GVT has passed it the events left in the workers are given back.
+     */
+    void run() {
+        ExecutorService pool = Executors.newFixedThreadPool( workers.length );
+        List <Callable <Void>> tasks = new ArrayList <Callable <Void>> ();
+        for (Worker w: workers) tasks.add( w );
+        try {
+            float stop = simulator.stopTime();
+            for (;;) {
+                takePrimitives();
+                float gvt = gvt();
+                float control = simulator.nextEventTime();
+                if ((gvt > stop) && (control > stop)) {
+                    break;
+                }
+                if ((gvt == Float.POSITIVE_INFINITY)
+                &&  (control == Float.POSITIVE_INFINITY)) {
+                    // no events of any kind remain
+                    break;
+                }
+                if (control < gvt) {
+                    // everything up to and including control is committed
+                    simulator.triggerNextEvent();
+                    continue;
+                }
+                for (Worker w: workers) {
+                    w.gvt = gvt;
+                    w.limit = Math.min( control, stop );
+                }
+                ParallelEngine.await( pool, tasks );
+                round = round + 1;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+            for (Worker w: workers) w.decay.merge();
+        }
+        giveBack();
+    }
+
+    /** Return the events left in the workers to the simulator
+     *  Only called once GVT has passed the stop time, so collecting the
+     *  messages in transit rolls nothing back.
+     */
+    private void giveBack() {
+        for (Worker w: workers) {
+            w.collect();
+        }
+        for (Worker w: workers) {
+            w.dropCancelled();
+            while (!w.queue.isEmpty()) {
+                simulator.giveBack( w.queue.topTime(), w.queue.topPayload() );
+                w.queue.removeTop();
+                w.dropCancelled();
+            }
+        }
+    }
+
+    /** Move primitive events pending in the simulator to their workers
+     */
+    private void takePrimitives() {
+        EventHeap pending = simulator.primitiveSet;
+        while (!pending.isEmpty()) {
+            float t = pending.topTime();
+            long p = pending.topPayload();
+            pending.removeTop();
+            long kind = p & Simulator.KIND;
+            int id = (int)p;
+            if (kind == Simulator.FIRE) {
+                workers[owner[id]].queue.add( t, p );
+            } else {
+                int e = (kind == Simulator.EDGE) ? id : net.edgeOf[id];
+                if (e >= 0) {
+                    long depth = p & (-1L << Simulator.DEPTH_SHIFT);
+                    workers[edgeOwner[e]].queue.add(
+                        t, depth | Simulator.EDGE | e
+                    );
+                }
+            }
+        }
+    }
+
+    /** Global virtual time: no event before it can still change
+     *  Only called between rounds, when no worker is running.
+     */
+    private float gvt() {
+        float t = Float.POSITIVE_INFINITY;
+        for (Worker w: workers) {
+            w.dropCancelled();
+            if (!w.queue.isEmpty() && (w.queue.topTime() < t)) {
+                t = w.queue.topTime();
+            }
+            if (w.outMin < t) t = w.outMin;
+        }
+        return t;
+    }
+
+    /** Does event (t1,p1) come after event (t2,p2)?
+     */
+    private static boolean after( float t1, long p1, float t2, long p2 ) {
+        return (t1 > t2) || ((t1 == t2) && (p1 > p2));
+    }
+
+    /** A pending event, as a key for the multiset of cancelled events
+     */
+    private static class Key {
+        final float time;
+        final long payload;
+
+        Key( float time, long payload ) {
+            this.time = time;
+            this.payload = payload;
+        }
+
+        public boolean equals( Object o ) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key)o;
+            return (Float.floatToIntBits( k.time ) == Float.floatToIntBits( time ))
+                && (k.payload == payload);
+        }
+
+        public int hashCode() {
+            return Float.hashCode( time ) * 31 + Long.hashCode( payload );
+        }
+    }
+
+    /** One worker thread's share of the network
+     */
+    private class Worker implements Callable <Void>, CompiledNetwork.EdgeScheduler {
+        final int index;
+
+        // unsimulated events; events in cancelled are skipped when they
+        // reach the top, since a heap cannot delete from the middle
+        final EventHeap queue = new EventHeap();
+        final HashMap <Key, Integer> cancelled = new HashMap <Key, Integer> ();
+
+        // simulated but uncommitted events, in order, with the state each
+        // changed: the neuron id, or ~edge for a synapse strength, or
+        // NOWHERE, and the voltage or strength, time and fire count before
+        int done = 0;           // number of entries
+        float[] doneTime = new float[64];
+        long[] donePayload = new long[64];
+        int[] savedWhat = new int[64];
+        float[] savedValue = new float[64];
+        float[] savedTime = new float[64];
+        int[] savedCount = new int[64];
+        int[] sentFrom = new int[64];   // start of each event's sends
+
+        // spikes sent by the events above: time, payload, worker
+        int sent = 0;
+        float[] sentTime = new float[64];
+        long[] sentPayload = new long[64];
+        int[] sentTo = new int[64];
+
+        // outbox[parity][w] holds messages for worker w, double buffered
+        // by round parity as in ParallelEngine; outAnti marks anti-messages
+        final float[][][] outTimes;
+        final long[][][] outPayloads;
+        final boolean[][][] outAnti;
+        final int[][] outCounts;
+        float outMin = Float.POSITIVE_INFINITY;
+
+        // set before each round
+        float gvt;
+        float limit;
+
+        // this worker's view of the decay, see Decay
+        final Decay decay = net.decay.view();
+
+        Worker( int index ) {
+            this.index = index;
+            int n = TimeWarpEngine.this.workers.length;
+            outTimes = new float[2][n][16];
+            outPayloads = new long[2][n][16];
+            outAnti = new boolean[2][n][16];
+            outCounts = new int[2][n];
+        }
+
+        public Void call() {
+            fossilCollect();
+            collect();
+            simulate();
+            return null;
+        }
+
+        /** Forget the history of events before GVT
+         */
+        private void fossilCollect() {
+            int keep = 0;
+            while ((keep < done) && (doneTime[keep] < gvt)) {
+                keep = keep + 1;
+            }
+            if (keep == 0) return;
+            int firstSent = (keep < done) ? sentFrom[keep] : sent;
+            int n = done - keep;
+            System.arraycopy( doneTime, keep, doneTime, 0, n );
+            System.arraycopy( donePayload, keep, donePayload, 0, n );
+            System.arraycopy( savedWhat, keep, savedWhat, 0, n );
+            System.arraycopy( savedValue, keep, savedValue, 0, n );
+            System.arraycopy( savedTime, keep, savedTime, 0, n );
+            System.arraycopy( savedCount, keep, savedCount, 0, n );
+            System.arraycopy( sentFrom, keep, sentFrom, 0, n );
+            for (int i = 0; i < n; i++) {
+                sentFrom[i] = sentFrom[i] - firstSent;
+            }
+            done = n;
+            int m = sent - firstSent;
+            System.arraycopy( sentTime, firstSent, sentTime, 0, m );
+            System.arraycopy( sentPayload, firstSent, sentPayload, 0, m );
+            System.arraycopy( sentTo, firstSent, sentTo, 0, m );
+            sent = m;
+        }
+
+        /** Take the messages other workers sent in the previous round
+         *  Each sender's messages are taken in the order sent, so a spike
+         *  always arrives before its anti-message.  The rollbacks they
+         *  cause may send anti-messages of their own, so the earliest
+         *  message sent this round is reset first, to count them in GVT.
+         */
+        private void collect() {
+            outMin = Float.POSITIVE_INFINITY;
+            int parity = (round + 1) & 1;
+            for (Worker w: workers) {
+                int n = w.outCounts[parity][index];
+                float[] times = w.outTimes[parity][index];
+                long[] payloads = w.outPayloads[parity][index];
+                boolean[] anti = w.outAnti[parity][index];
+                for (int i = 0; i < n; i++) {
+                    if (anti[i]) {
+                        annihilate( times[i], payloads[i] );
+                    } else {
+                        receive( times[i], payloads[i] );
+                    }
+                }
+                w.outCounts[parity][index] = 0;
+            }
+        }
+
+        /** A spike arrives; roll back if it is a straggler
+         */
+        private void receive( float t, long p ) {
+            rollBackAfter( t, p );
+            queue.add( t, p );
+        }
+
+        /** An anti-message arrives for spike (t,p)
+         */
+        private void annihilate( float t, long p ) {
+            // if the spike was simulated, undo back through it, which
+            // returns it to the queue; then cancel it there
+            rollBackAfter( t, p );
+            if ((done > 0)
+            &&  (doneTime[done - 1] == t) && (donePayload[done - 1] == p)) {
+                undoLast();
+            }
+            cancel( t, p );
+        }
+
+        /** Undo every simulated event that comes after (t,p)
+         */
+        private void rollBackAfter( float t, long p ) {
+            while ((done > 0)
+            &&     after( doneTime[done - 1], donePayload[done - 1], t, p )) {
+                undoLast();
+            }
+        }
+
+        /** Undo the last simulated event and put it back in the queue
+         */
+        private void undoLast() {
+            int i = done - 1;
+            int what = savedWhat[i];
+            if (what >= 0) {
+                net.voltage[what] = savedValue[i];
+                net.lastTime[what] = savedTime[i];
+                net.fireCount[what] = savedCount[i];
+            } else if (what != CompiledNetwork.NOWHERE) {
+                net.strengths[~what] = savedValue[i];
+            }
+
+            // take back the spikes it sent, latest first
+            for (int j = sent - 1; j >= sentFrom[i]; j--) {
+                if (sentTo[j] == index) {
+                    cancel( sentTime[j], sentPayload[j] );
+                } else {
+                    post( sentTo[j], sentTime[j], sentPayload[j], true );
+                }
+            }
+            sent = sentFrom[i];
+            done = i;
+            queue.add( doneTime[i], donePayload[i] );
+        }
+
+        /** Remove one copy of event (t,p) from the queue
+         */
+        private void cancel( float t, long p ) {
+            cancelled.merge( new Key( t, p ), 1, Integer::sum );
+        }
+
+        /** Discard cancelled events from the top of the queue
+         */
+        void dropCancelled() {
+            while (!cancelled.isEmpty() && !queue.isEmpty()) {
+                Key k = new Key( queue.topTime(), queue.topPayload() );
+                Integer c = cancelled.get( k );
+                if (c == null) return;
+                if (c == 1) {
+                    cancelled.remove( k );
+                } else {
+                    cancelled.put( k, c - 1 );
+                }
+                queue.removeTop();
+            }
+        }
+
+        /** Optimistically simulate up to a batch of events
+         */
+        private void simulate() {
+            for (int n = 0; n < BATCH; n++) {
+                dropCancelled();
+                if (queue.isEmpty() || (queue.topTime() > limit)) return;
+                step();
+            }
+        }
+
+        /** Simulate the earliest event in the queue, saving what it changes
+         */
+        private void step() {
+            float t = queue.topTime();
+            long p = queue.topPayload();
+            queue.removeTop();
+            int id = (int)p;
+            boolean fire = (p & Simulator.KIND) == Simulator.FIRE;
+
+            // a delivery changes what its target encodes, see savedWhat
+            record( t, p, fire ? id : net.targets[id] );
+
+            if (fire) {
+                net.fire( id, t, this );
+            } else {
+                net.deliver( id, t, this, decay );
+            }
+        }
+
+        /** Log event (t,p), which is about to change what
+         */
+        private void record( float t, long p, int what ) {
+            if (done == doneTime.length) {
+                int n = done * 2;
+                doneTime = Arrays.copyOf( doneTime, n );
+                donePayload = Arrays.copyOf( donePayload, n );
+                savedWhat = Arrays.copyOf( savedWhat, n );
+                savedValue = Arrays.copyOf( savedValue, n );
+                savedTime = Arrays.copyOf( savedTime, n );
+                savedCount = Arrays.copyOf( savedCount, n );
+                sentFrom = Arrays.copyOf( sentFrom, n );
+            }
+            doneTime[done] = t;
+            donePayload[done] = p;
+            savedWhat[done] = what;
+            if (what >= 0) {
+                savedValue[done] = net.voltage[what];
+                savedTime[done] = net.lastTime[what];
+                savedCount[done] = net.fireCount[what];
+            } else if (what != CompiledNetwork.NOWHERE) {
+                savedValue[done] = net.strengths[~what];
+            }
+            sentFrom[done] = sent;
+            done = done + 1;
+        }
+
+        /** Called by the network for each edge of a neuron that fires
+         */
+        public void scheduleEdge( float t, int e ) {
+            int i = done - 1;
+            long p = Simulator.depthAfter( doneTime[i], donePayload[i], t )
+                   | Simulator.EDGE | e;
+            int w = edgeOwner[e];
+            if (sent == sentTime.length) {
+                sentTime = Arrays.copyOf( sentTime, sent * 2 );
+                sentPayload = Arrays.copyOf( sentPayload, sent * 2 );
+                sentTo = Arrays.copyOf( sentTo, sent * 2 );
+            }
+            sentTime[sent] = t;
+            sentPayload[sent] = p;
+            sentTo[sent] = w;
+            sent = sent + 1;
+            if (w == index) {
+                queue.add( t, p );
+            } else {
+                post( w, t, p, false );
+            }
+        }
+
+        /** Put a spike or anti-message in the outbox for worker w
+         */
+        private void post( int w, float t, long p, boolean anti ) {
+            int parity = round & 1;
+            int n = outCounts[parity][w];
+            if (n == outTimes[parity][w].length) {
+                outTimes[parity][w] = Arrays.copyOf( outTimes[parity][w], n * 2 );
+                outPayloads[parity][w]
+                    = Arrays.copyOf( outPayloads[parity][w], n * 2 );
+                outAnti[parity][w] = Arrays.copyOf( outAnti[parity][w], n * 2 );
+            }
+            outTimes[parity][w][n] = t;
+            outPayloads[parity][w][n] = p;
+            outAnti[parity][w][n] = anti;
+            outCounts[parity][w] = n + 1;
+            if (t < outMin) outMin = t;
+        }
+    }
+}
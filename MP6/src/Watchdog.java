@@ -0,0 +1,303 @@
+// Watchdog.java
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/** Guard against runaway excitation during a run
+ *  @version: October 16, 2026
+ *  @see Simulator
+ *  @see NeuronNetwork
+ *
+ *  A loop of primary synapses strong enough to keep its neurons firing,
+ *  with short delays, can schedule events faster than the simulator
+ *  takes them, until the pending events fill the heap.  The command
+ *  {@code watchdog r p} sets two budgets: at most r events may be
+ *  scheduled in any one unit of simulated time, and at most p events may
+ *  be pending at once.  When a run exceeds either, it stops, leaving its
+ *  pending events in place, and the watchdog reports which budget was
+ *  exceeded and where: the strongly connected set of neurons, found from
+ *  the primary synapses by Tarjan's algorithm, that received the most
+ *  events in the unit of time that broke the budget.  A feedback loop
+ *  can only be inside such a set.  {@code watchdog off} removes it.
+ *
+ *  Events are counted as the simulator schedules them, including events
+ *  beyond the horizon.  The parallel, time warp and clock engines
+ *  schedule within their own workers, where nothing would count them, so
+ *  while a watchdog is set every run is simulated event by event on the
+ *  compiled network instead, whatever the {@code engine} command chose.
+ */
+class Watchdog {
+
+    // the budgets
+    private final int rate;
+    private final int pending;
+
+    // the unit of simulated time being counted, and its counts
+    private float windowStart = 0.0f;
+    private int windowCount = 0;
+    private int[] received = new int[0];   // events for each neuron id
+    // a neuron's count is only valid if its mark is the current window,
+    // so starting a window costs nothing per neuron, as in InputAccumulator
+    private int[] mark = new int[0];
+    private int window = 0;
+
+    // events scheduled since the run began; every 1024 of them the pending
+    // events are counted, however few come in each unit of time
+    private long runCount = 0;
+
+    private boolean active = false;
+    private boolean tripped = false;
+    private String reason = null;
+
+    /** Create a watchdog with the given budgets
+     *  @param rate the most events to schedule in one unit of time
+     *  @param pending the most events to have pending
+     */
+    Watchdog( int rate, int pending ) {
+        this.rate = rate;
+        this.pending = pending;
+    }
+
+    /** Scan a {@code watchdog} command, see above
+     *  @param sim the simulation it applies to
+     *  @param sc the scanner, positioned just after the command
+     */
+    static void command( Simulation sim, Tokenizer sc ) {
+        if (sc.hasNext( "off" )) {
+            sc.next();
+            ScanSupport.lineEnd(
+                sc,
+                () -> "watchdog off"
+            );
+            sim.simulator.watchdog = null;
+            return;
+        }
+        int rate = ScanSupport.nextInt(
+            sc,
+            () -> "watchdog ???"
+        );
+        int pending = ScanSupport.nextInt(
+            sc,
+            () -> "watchdog " + rate + " ???"
+        );
+        ScanSupport.lineEnd(
+            sc,
+            () -> "watchdog " + rate + " " + pending
+        );
+        if ((rate < 1) || (pending < 1)) {
+            Errors.warning(
+                "watchdog " + rate + " " + pending + " -- budgets must be positive"
+            );
+            return;
+        }
+        sim.simulator.watchdog = new Watchdog( rate, pending );
+    }
+
+    /** Start watching a run
+     *  @param neurons the number of neurons in the network
+     */
+    void begin( int neurons ) {
+        if (received.length < neurons) {
+            received = new int[neurons];
+            mark = Arrays.copyOf( mark, neurons );
+        }
+        window = window + 1;
+        windowStart = 0.0f;
+        windowCount = 0;
+        runCount = 0;
+        active = true;
+        tripped = false;
+        reason = null;
+    }
+
+    /** Stop watching; events scheduled between runs are not counted
+     */
+    void end() {
+        active = false;
+    }
+
+    /** Has a budget been exceeded since the run began?
+     */
+    boolean tripped() {
+        return tripped;
+    }
+
+    /** Count one event scheduled during the run
+     *  @param now the simulated time of the event being simulated
+     *  @param neuron the id of the neuron the event is for, or -1
+     *  @param simulator the simulator, asked for its pending events now
+     *         and then
+     */
+    void scheduled( float now, int neuron, Simulator simulator ) {
+        if (!active || tripped) return;
+        if ((now >= windowStart + 1.0f) || (now < windowStart)) {
+            windowStart = (float)Math.floor( now );
+            windowCount = 0;
+            window = window + 1;
+        }
+        windowCount = windowCount + 1;
+        runCount = runCount + 1;
+        if ((neuron >= 0) && (neuron < received.length)) {
+            if (mark[neuron] != window) {
+                mark[neuron] = window;
+                received[neuron] = 0;
+            }
+            received[neuron] = received[neuron] + 1;
+        }
+        if (windowCount > rate) {
+            trip(
+                windowCount + " events scheduled in the time unit from " +
+                windowStart + ", budget " + rate
+            );
+        } else if ((runCount & 1023) == 0) {
+            long size = simulator.pending();
+            if (size > pending) {
+                trip( size + " events pending, budget " + pending );
+            }
+        }
+    }
+
+    /** Stop the run, saying why
+     */
+    private void trip( String why ) {
+        tripped = true;
+        reason = why;
+    }
+
+    /** Report why the run stopped, if it was stopped
+     *  @param sim the simulation that ran
+     */
+    void report( Simulation sim ) {
+        if (!tripped) return;
+        sim.out.println( "--- runaway stopped: " + reason + " ---" );
+
+        // the strongly connected set that received the most events
+        List <Neuron> worst = null;
+        long most = 0;
+        for (List <Neuron> c: loops( sim.network )) {
+            long events = 0;
+            for (Neuron n: c) events = events + received( n.id );
+            if (events > most) {
+                most = events;
+                worst = c;
+            }
+        }
+        if (worst == null) {
+            sim.out.println( "--- no feedback loop received those events ---" );
+            return;
+        }
+        StringBuilder s = new StringBuilder( "--- feedback loop of " );
+        s.append( worst.size() ).append( " neurons, " ).append( most );
+        s.append( " events:" );
+        for (int i = 0; (i < worst.size()) && (i < 20); i++) {
+            s.append( ' ' ).append( worst.get( i ).name );
+        }
+        if (worst.size() > 20) {
+            s.append( " and " ).append( worst.size() - 20 ).append( " more" );
+        }
+        sim.out.println( s.append( " ---" ) );
+    }
+
+    /** The events neuron id received in the window that broke the budget
+     */
+    private int received( int id ) {
+        if ((id >= received.length) || (mark[id] != window)) return 0;
+        return received[id];
+    }
+
+    /** Find the strongly connected sets of neurons that hold a loop
+     *  These are the sets of more than one neuron, and single neurons
+     *  with a synapse to themselves.  Tarjan's algorithm is run with an
+     *  explicit stack, since a long chain of neurons would overflow the
+     *  Java stack; each neuron on the search path keeps an iterator over
+     *  its synapses, which are a linked list.
+     *  @param net the network; only primary synapses join neurons
+     *  @return the sets
+     */
+    @SuppressWarnings( "unchecked" )
+    static List <List <Neuron>> loops( NeuronNetwork net ) {
+        List <Neuron> neurons = net.neuronIndex;
+        int n = neurons.size();
+        int[] index = new int[n];       // order of discovery, from 1
+        int[] low = new int[n];
+        // the synapses still to visit of the neuron at each depth
+        Iterator <Synapse>[] next = (Iterator <Synapse>[])new Iterator <?>[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];       // Tarjan's stack of neurons
+        int[] path = new int[n];        // the depth-first search path
+        int top = 0;
+        int counter = 0;
+        List <List <Neuron>> result = new ArrayList <List <Neuron>> ();
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] != 0) continue;
+            int depth = 0;
+            next[depth] = neurons.get( root ).synapses.iterator();
+            path[depth++] = root;
+            counter = counter + 1;
+            index[root] = low[root] = counter;
+            stack[top++] = root;
+            onStack[root] = true;
+
+            while (depth > 0) {
+                int v = path[depth - 1];
+                Iterator <Synapse> out = next[depth - 1];
+                if (out.hasNext()) {
+                    int w = destinationOf( out.next() );
+                    if (w < 0) continue;
+                    if (index[w] == 0) {
+                        counter = counter + 1;
+                        index[w] = low[w] = counter;
+                        stack[top++] = w;
+                        onStack[w] = true;
+                        next[depth] = neurons.get( w ).synapses.iterator();
+                        path[depth++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min( low[v], index[w] );
+                    }
+                    continue;
+                }
+
+                // every synapse of v is done
+                depth = depth - 1;
+                next[depth] = null;
+                if (depth > 0) {
+                    int u = path[depth - 1];
+                    low[u] = Math.min( low[u], low[v] );
+                }
+                if (low[v] == index[v]) {
+                    List <Neuron> c = new ArrayList <Neuron> ();
+                    int w;
+                    do {
+                        w = stack[--top];
+                        onStack[w] = false;
+                        c.add( neurons.get( w ) );
+                    } while (w != v);
+                    if ((c.size() > 1) || selfLoop( neurons.get( v ) )) {
+                        result.add( c );
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /** The id of the neuron synapse s kicks, or -1 if none
+     */
+    private static int destinationOf( Synapse s ) {
+        if (!(s instanceof PrimarySynapse)) return -1;
+        Neuron d = ((PrimarySynapse)s).destination;
+        return (d == null) ? -1 : d.id;
+    }
+
+    /** Does neuron n have a primary synapse to itself?
+     */
+    private static boolean selfLoop( Neuron n ) {
+        for (Synapse s: n.synapses) {
+            if (destinationOf( s ) == n.id) return true;
+        }
+        return false;
+    }
+}
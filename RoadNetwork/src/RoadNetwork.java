@@ -8,9 +8,8 @@
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.nio.channels.Channels;
 import java.util.LinkedList;
-import java.util.regex.Pattern;
-import java.util.Scanner;
 
 // Utility classes
 
@@ -37,7 +36,7 @@ class ScanSupport {
 
 	/** Force there to be a line end here, complain if not
 	 */
-	static void lineEnd( Scanner sc, ErrorMessage message ) {
+	static void lineEnd( Tokenizer sc, ErrorMessage message ) {
 		String skip = sc.nextLine();
 		if (!"".equals( skip )) {
 			// Bug:  do we want to allow comments here
@@ -49,14 +48,11 @@ class ScanSupport {
 		// Bug:  what if sc.nextLine() was illegal (illegal state)
 	}
 
-	/* really private to nextName */
-	private static final Pattern name = Pattern.compile( "[A-Za-z]\\w*" );
-
 	/** Get the next float, or complain if there isn't one
 	 */
-	static String nextName( Scanner sc, ErrorMessage message ) {
-		if (sc.hasNext( name )) {
-			return sc.next( name );
+	static String nextName( Tokenizer sc, ErrorMessage message ) {
+		if (sc.hasNextName()) {
+			return sc.nextName();
 		} else {
 			Errors.warning(
 				message.myString() +
@@ -68,7 +64,7 @@ class ScanSupport {
 
 	/** Get the next float, or complain if there isn't one
 	 */
-	static float nextFloat( Scanner sc, ErrorMessage message ) {
+	static float nextFloat( Tokenizer sc, ErrorMessage message ) {
 		if (sc.hasNextFloat()) {
 			return sc.nextFloat();
 		} else {
@@ -94,7 +90,7 @@ class Road {
 	// name of road is source-destination
 
 	// initializer
-	public Road( Scanner sc, LinkedList <Intersection> inters ) {
+	public Road( Tokenizer sc, LinkedList <Intersection> inters ) {
 		// scan and process one road
 		String sourceName = ScanSupport.nextName(
 			sc,
@@ -169,7 +165,7 @@ abstract class Intersection {
 // Subclasses of Intersection
 class NoStop extends Intersection {
 	// initializer
-	public NoStop( Scanner sc, String name ) throws IllegalName {
+	public NoStop( Tokenizer sc, String name ) throws IllegalName {
 		this.name = name;
 
 		// scan and process one intersection
@@ -194,7 +190,7 @@ class NoStop extends Intersection {
 
 class StopLight extends Intersection {
 	// initializer
-	public StopLight( Scanner sc, String name ) throws IllegalName {
+	public StopLight( Tokenizer sc, String name ) throws IllegalName {
 		this.name = name;
 
 		// scan and process one intersection
@@ -246,12 +242,9 @@ public class RoadNetwork {
 		return null;
 	}
 
-	/* really private to initializeNetwork() */
-	private static final Pattern stoplight = Pattern.compile( "stoplight" );
-
 	/** Initialize the road network by scanning its description
 	 */
-	static void initializeNetwork( Scanner sc ) {
+	static void initializeNetwork( Tokenizer sc ) {
 		while (sc.hasNext()) {
 			String command = sc.next();
 			if (("intersection".equals( command ))
@@ -262,8 +255,8 @@ public class RoadNetwork {
 				);
 
 				// What kind of intersection is this?
-				if (sc.hasNext( stoplight )) {
-					sc.next( stoplight ); // skip keyword
+				if (sc.hasNext( "stoplight" )) {
+					sc.next(); // skip keyword
 					try {
 						inters.add(
 						        new StopLight(sc,name)
@@ -314,11 +307,11 @@ public class RoadNetwork {
 			Errors.fatal( "too many arguments" );
 		}
 		try {
-			initializeNetwork( new Scanner(new File(args[0])) );
+			initializeNetwork( new Tokenizer( new FileInputStream( args[0] ).getChannel() ) );
 		} catch (FileNotFoundException e) {
 			Errors.fatal( "file not found: " + args[0] );
 		}*/
-                Scanner sc = new Scanner(System.in);
+                Tokenizer sc = new Tokenizer( Channels.newChannel( System.in ) );
                 initializeNetwork(sc);
 	}
 }
\ No newline at end of file
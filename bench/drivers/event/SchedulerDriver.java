@@ -0,0 +1,268 @@
+// SchedulerDriver.java
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongBiFunction;
+
+/** Benchmark workloads for the MP6 simulator and its anonymous Events
+ *  @version: October 16, 2026
+ *  @see bench.Trees
+ *
+ *  The benchmarks in {@code bench/src} compile this class together with
+ *  MP6, see {@code bench.Trees}.  The scheduler workloads schedule
+ *  anonymous subclasses of {@code Simulator.Event}, as MP6 schedules its
+ *  own; the others build a network and run it.  The workloads are
+ *  described in {@code bench.SchedulerBenchmark},
+ *  {@code bench.NetworkBenchmark} and {@code bench.EngineCheck}.
+ */
+class SchedulerDriver implements ToLongBiFunction <String, Integer> {
+
+    private static final PrintStream NOWHERE =
+        new PrintStream( OutputStream.nullOutputStream() );
+
+    // generated networks, by workload, made once for all iterations
+    private static final Map <String, String> texts = new HashMap <String, String> ();
+
+    // the state of a scheduler workload
+    private Simulator simulator;
+    private SplittableRandom random;
+    private long events;
+    private int scheduled;
+    private int limit;
+    private float sum;
+
+    /** Run one iteration of a workload
+     *  @param workload uniform, hold, ties, kick, network:engine,
+     *         straggler:engine, forever:engine or decay:mode:intervals
+     *  @param n the number of events or firings
+     *  @return the number of events triggered or neurons fired, or -1 if
+     *          the result is wrong
+     */
+    public long applyAsLong( String workload, Integer n ) {
+        if (workload.startsWith( "straggler:" )) {
+            return straggler( workload.substring( "straggler:".length() ) );
+        } else if (workload.startsWith( "decay:" )) {
+            return decay( workload.substring( "decay:".length() ), n );
+        } else if (workload.startsWith( "forever:" )) {
+            return forever( workload.substring( "forever:".length() ) );
+        } else if ("kick".equals( workload )) {
+            return fired( text( workload, n ) + "run " + (n / 10) + "\n" );
+        } else if (workload.startsWith( "network:" )) {
+            return fired( text( workload, n ) );
+        }
+
+        simulator = new Simulation( NOWHERE ).simulator;
+        random = new SplittableRandom( 42 );
+        events = 0;
+        sum = 0.0f;
+        limit = n;
+        if ("uniform".equals( workload )) {
+            float span = n / 1000.0f;
+            for (int i = 0; i < n; i++) {
+                simulator.schedule( counter( (float)(random.nextDouble() * span) ) );
+            }
+        } else if ("hold".equals( workload )) {
+            scheduled = Math.min( 1000, n );
+            for (int i = 0; i < scheduled; i++) {
+                simulator.schedule( holder( exponential() ) );
+            }
+        } else if ("ties".equals( workload )) {
+            for (int i = 0; i < n; i++) {
+                simulator.schedule( counter( i % 10 ) );
+            }
+        } else {
+            throw new IllegalArgumentException( workload );
+        }
+        simulator.run();
+        return (sum < 0.0f) ? -1 : events;
+    }
+
+    private Simulator.Event counter( float t ) {
+        return new Simulator.Event( t ) {
+            void trigger() {
+                events = events + 1;
+                sum = sum + time;
+            }
+        };
+    }
+
+    // each event schedules the next, keeping about 1000 pending
+    private Simulator.Event holder( float t ) {
+        return new Simulator.Event( t ) {
+            void trigger() {
+                events = events + 1;
+                sum = sum + time;
+                if (scheduled < limit) {
+                    scheduled = scheduled + 1;
+                    simulator.schedule( holder( time + exponential() ) );
+                }
+            }
+        };
+    }
+
+    private float exponential() {
+        return (float)-Math.log( 1.0 - random.nextDouble() );
+    }
+
+    /** The network text of a workload
+     *  kick is a ring of 1000 neurons carrying 10 waves, so each unit of
+     *  time fires 10 neurons; network:e is a random network of n/100
+     *  neurons with 10 synapses each, run for 20 time units on engine e.
+     */
+    private static String text( String workload, int n ) {
+        String text = texts.get( workload );
+        if (text != null) return text;
+        StringBuilder s = new StringBuilder();
+        if ("kick".equals( workload )) {
+            s.append( "engine heap\n" );
+            for (int i = 0; i < 1000; i++) {
+                s.append( "neuron N" ).append( 1000 + i ).append( " 1.0 " );
+                s.append( (i % 100 == 0) ? "2.0\n" : "0.0\n" );
+            }
+            for (int i = 0; i < 1000; i++) {
+                s.append( "synapse - N" ).append( 1000 + i );
+                s.append( " N" ).append( 1000 + (i + 1) % 1000 ).append( " 1.0 1.5\n" );
+            }
+        } else {
+            s.append( "engine " ).append( workload.substring( "network:".length() ) );
+            s.append( '\n' );
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                new NetworkGenerator( new String[] {
+                    "random", Integer.toString( Math.max( 100, n / 100 ) ),
+                    "fanout", "10", "seed", "42", "run", "20"
+                } ).write( bytes );
+            } catch (IOException e) {
+                throw new UncheckedIOException( e );
+            }
+            s.append( bytes.toString() );
+        }
+        texts.put( workload, s.toString() );
+        return s.toString();
+    }
+
+    /** A network in which a spike from N00Y reaches N00A, at 1.3, only
+     *  after N00A has fired at 1.5 and sent a spike on to N00B.  Each
+     *  worker of the time warp engine takes a neuron of each pair, so
+     *  the spike to N00B has to be cancelled by an anti-message, and
+     *  N00B never fires.
+     */
+    private static final String STRAGGLER =
+        "neuron N00X 1.0 1.5\n" +
+        "neuron N00A 1.0 0.0\n" +
+        "neuron N00Z 1.0 1.5\n" +
+        "neuron N00Y 1.0 0.0\n" +
+        "neuron N00B 1.0 0.0\n" +
+        "neuron N00D 1.0 0.0\n" +
+        "synapse - N00X N00A 1.5 1.2\n" +
+        "synapse - N00X N00D 0.1 0.0\n" +
+        "synapse - N00X N00D 0.1 0.0\n" +
+        "synapse - N00A N00B 1.0 1.2\n" +
+        "synapse - N00Z N00Y 1.2 1.2\n" +
+        "synapse - N00Y N00A 0.1 -1.5\n" +
+        "output 20 40\n" +
+        "run 45\n";
+
+    /** Run the straggler network on an engine and on the compiled engine
+     *  @param engine the engine, with a dash in place of the space
+     *         before its number of workers
+     *  @return the number of simulations run, or -1 if the two engines
+     *          disagree
+     */
+    private static long straggler( String engine ) {
+        String expected = Simulation.runText( "engine compiled\n" + STRAGGLER );
+        String got = Simulation.runText(
+            "engine " + engine.replace( '-', ' ' ) + "\n" + STRAGGLER
+        );
+        return got.equals( expected ) ? 2 : -1;
+    }
+
+    /** A network run with a plain {@code run}, until no events remain
+     *  Every delay is a multiple of 0.1, so a clock engine with that step
+     *  fires at the same times as the event-driven engines.
+     */
+    private static final String FOREVER =
+        "neuron N00X 1.0 1.5\n" +
+        "neuron N00A 1.0 0.0\n" +
+        "neuron N00Y 1.0 0.0\n" +
+        "neuron N00B 1.0 0.0\n" +
+        "synapse - N00X N00A 1.5 1.2\n" +
+        "synapse - N00A N00B 1.0 1.2\n" +
+        "synapse - N00Y N00A 0.1 -1.5\n" +
+        "output 1 10\n" +
+        "run\n";
+
+    /** Run the unbounded network on an engine and on the calendar engine
+     *  The run is given ten seconds, on a thread that does not keep the
+     *  JVM alive, so an engine that never stops is reported rather than
+     *  hanging the benchmark.
+     *  @param engine the engine, with a dash in place of the space
+     *         before its number of workers or its step
+     *  @return the number of simulations run, or -1 if the engine fails,
+     *          does not stop, or disagrees with the calendar engine
+     */
+    private static long forever( String engine ) {
+        String expected = Simulation.runText( "engine calendar\n" + FOREVER );
+        ExecutorService pool = Executors.newSingleThreadExecutor( r -> {
+            Thread t = new Thread( r );
+            t.setDaemon( true );
+            return t;
+        } );
+        Future <String> got = pool.submit(
+            () -> Simulation.runText(
+                "engine " + engine.replace( '-', ' ' ) + "\n" + FOREVER
+            )
+        );
+        pool.shutdown();
+        try {
+            return got.get( 10, TimeUnit.SECONDS ).equals( expected ) ? 2 : -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /** Evaluate n decay factors in a mode
+     *  @param spec the mode, a colon, and the intervals: few, 16 multiples
+     *         of 0.25 as from quantized delays, or any, 4096 random ones
+     *  @return n, or -1 if the sum of the factors is impossible
+     */
+    private static long decay( String spec, int n ) {
+        String[] p = spec.split( ":" );
+        int mode = java.util.Arrays.asList( Decay.MODES ).indexOf( p[0] );
+        Decay d = new Decay( mode );
+        float[] x = new float["few".equals( p[1] ) ? 16 : 4096];
+        SplittableRandom random = new SplittableRandom( 42 );
+        for (int i = 0; i < x.length; i++) {
+            x[i] = "few".equals( p[1] )
+                ? -0.25f * (i + 1)
+                : (float)(-5.0 * random.nextDouble());
+        }
+        float sum = 0.0f;
+        for (int i = 0; i < n; i++) {
+            sum = sum + d.exp( x[i & (x.length - 1)] );
+        }
+        return (sum < 0.0f) ? -1 : n;
+    }
+
+    /** Read and run a network, and count its firings
+     */
+    private static long fired( String text ) {
+        Simulation sim = new Simulation( NOWHERE );
+        sim.network.initializeNetwork( new Tokenizer( text ) );
+        long fired = 0;
+        for (Neuron n: sim.network.neuronIndex) {
+            fired = fired + n.fireCount;
+        }
+        return fired;
+    }
+}
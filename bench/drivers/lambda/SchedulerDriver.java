@@ -0,0 +1,77 @@
+// SchedulerDriver.java
+
+import java.util.SplittableRandom;
+import java.util.function.ToLongBiFunction;
+
+/** Benchmark workloads for the static Simulator that schedules Action lambdas
+ *  @version: October 16, 2026
+ *  @see bench.Trees
+ *
+ *  The benchmarks in {@code bench/src} compile this class together with
+ *  each source tree whose {@code Simulator} has
+ *  {@code schedule(float, Action)} and {@code run()}: MP4, MP4v2, MP5 and
+ *  LogicCircuit, see {@code bench.Trees}.  Each event is a lambda,
+ *  scheduled as those programs schedule theirs; the workloads are
+ *  described in {@code bench.SchedulerBenchmark}.
+ */
+class SchedulerDriver implements ToLongBiFunction <String, Integer> {
+
+    // the state of a workload; static, as the simulator is
+    private static SplittableRandom random;
+    private static long events;
+    private static int scheduled;
+    private static int limit;
+    private static float sum;
+
+    /** Run one iteration of a workload
+     *  @param workload uniform, hold or ties
+     *  @param n the number of events
+     *  @return the number of events triggered
+     */
+    public long applyAsLong( String workload, Integer n ) {
+        random = new SplittableRandom( 42 );
+        events = 0;
+        sum = 0.0f;
+        limit = n;
+        if ("uniform".equals( workload )) {
+            float span = n / 1000.0f;
+            for (int i = 0; i < n; i++) {
+                Simulator.schedule(
+                    (float)(random.nextDouble() * span),
+                    (float time) -> count( time )
+                );
+            }
+        } else if ("hold".equals( workload )) {
+            scheduled = Math.min( 1000, n );
+            for (int i = 0; i < scheduled; i++) {
+                Simulator.schedule( exponential(), (float time) -> hold( time ) );
+            }
+        } else if ("ties".equals( workload )) {
+            for (int i = 0; i < n; i++) {
+                Simulator.schedule( i % 10, (float time) -> count( time ) );
+            }
+        } else {
+            throw new IllegalArgumentException( workload );
+        }
+        Simulator.run();
+        return (sum < 0.0f) ? -1 : events;
+    }
+
+    private static void count( float time ) {
+        events = events + 1;
+        sum = sum + time;
+    }
+
+    // each event schedules the next, keeping about 1000 pending
+    private static void hold( float time ) {
+        count( time );
+        if (scheduled < limit) {
+            scheduled = scheduled + 1;
+            Simulator.schedule( time + exponential(), (float t) -> hold( t ) );
+        }
+    }
+
+    private static float exponential() {
+        return (float)-Math.log( 1.0 - random.nextDouble() );
+    }
+}
@@ -0,0 +1,82 @@
+// Compare.java
+
+package bench;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Run the scheduler benchmarks and flag designs far slower than the rest
+ *  @version: October 17, 2026
+ *  @see SchedulerBenchmark
+ *  <PRE>
+ *  java -cp target/benchmarks.jar bench.Compare [slow] [JMH option]...
+ *  </PRE>
+ *  The schedulers all do the same job, so a design more than slow times
+ *  (default 10) slower than the fastest design at the same workload, in
+ *  events per second, such as one that is quadratic in the number of
+ *  ties, is flagged after JMH's results, and the program exits with
+ *  status 2, so a script running it can fail.  The JMH options are those
+ *  of {@code java -jar target/benchmarks.jar}; for example,
+ *  {@code -rf csv -rff file.csv} also writes the results to a file, to
+ *  compare releases.
+ */
+public class Compare {
+
+    public static void main( String[] args )
+        throws RunnerException, CommandLineOptionException {
+        double slow = 10.0;
+        if ((args.length > 0) && !args[0].startsWith( "-" )) {
+            slow = Double.parseDouble( args[0] );
+            args = Arrays.copyOfRange( args, 1, args.length );
+        }
+        Collection <RunResult> results = new Runner(
+            new OptionsBuilder()
+                .parent( new CommandLineOptions( args ) )
+                .include( SchedulerBenchmark.class.getName() )
+                .build()
+        ).run();
+
+        // the best rate at each workload, and the design that has it
+        Map <String, Double> best = new HashMap <String, Double> ();
+        Map <String, String> fastest = new HashMap <String, String> ();
+        for (RunResult r: results) {
+            String workload = r.getParams().getParam( "workload" );
+            double rate = events( r );
+            if (rate > best.getOrDefault( workload, 0.0 )) {
+                best.put( workload, rate );
+                fastest.put( workload, r.getParams().getParam( "design" ) );
+            }
+        }
+
+        boolean flagged = false;
+        for (RunResult r: results) {
+            String workload = r.getParams().getParam( "workload" );
+            double rate = events( r );
+            if (best.get( workload ) > slow * rate) {
+                System.out.printf(
+                    "SLOW: %s/%s is %.0f times slower than %s%n",
+                    r.getParams().getParam( "design" ), workload,
+                    best.get( workload ) / rate, fastest.get( workload )
+                );
+                flagged = true;
+            }
+        }
+        if (flagged) System.exit( 2 );
+    }
+
+    /** The events per second of a run
+     */
+    private static double events( RunResult r ) {
+        Result events = r.getSecondaryResults().get( "events" );
+        return (events != null) ? events.getScore() : r.getPrimaryResult().getScore();
+    }
+}
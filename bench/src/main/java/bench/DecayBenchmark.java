@@ -0,0 +1,60 @@
+// DecayBenchmark.java
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongBiFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of MP6's decay modes against the exact evaluation
+ *  @version: October 17, 2026
+ *  @see NetworkBenchmark
+ *
+ *  Each invocation evaluates n decay factors with {@code Decay.exp} in
+ *  one mode, exact, cached or table, over either a few intervals, 16
+ *  multiples of 0.25 as quantized delays give, or any, 4096 random
+ *  intervals.  The {@code events} counter is in evaluations per second,
+ *  so a mode is only worth choosing where it beats exact.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+public class DecayBenchmark {
+
+    @Param( { "exact", "cached", "table" } )
+    public String mode;
+
+    @Param( { "few", "any" } )
+    public String intervals;
+
+    @Param( "1000000" )
+    public int n;
+
+    private ToLongBiFunction <String, Integer> driver;
+
+    @Setup( Level.Trial )
+    public void load() {
+        driver = Trees.driver( "mp6" );
+    }
+
+    @Benchmark
+    public long exp( SchedulerBenchmark.Counts counts ) {
+        return SchedulerBenchmark.run(
+            driver, "decay:" + mode + ":" + intervals, n, counts
+        );
+    }
+}
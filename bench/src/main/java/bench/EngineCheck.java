@@ -0,0 +1,64 @@
+// EngineCheck.java
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongBiFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Checks of MP6's engines, run as benchmarks
+ *  @version: October 17, 2026
+ *  @see NetworkBenchmark
+ *
+ *  Each check fails, and so fails the benchmark, if an engine gets a
+ *  result different from the sequential engines:
+ *  <DL>
+ *  <DT>{@code straggler:e}<DD>a small network whose spikes arrive out of
+ *      order across workers, on engine e and on the compiled engine
+ *  <DT>{@code forever:e}<DD>a small network run with a plain
+ *      {@code run}, with no time, on engine e and on the calendar engine;
+ *      it also fails if engine e does not stop within ten seconds
+ *  </DL>
+ *  In an engine's name a dash stands for the space before its number of
+ *  workers or its step.  {@code java -jar target/benchmarks.jar
+ *  EngineCheck -foe true} is a quick check of the parallel engines and
+ *  that every engine finishes an unbounded run.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 1 )
+@Measurement( iterations = 3 )
+@Fork( 1 )
+public class EngineCheck {
+
+    @Param( {
+        "straggler:parallel-2", "straggler:timewarp-2",
+        "forever:calendar", "forever:heap", "forever:compiled",
+        "forever:parallel-2", "forever:timewarp-2", "forever:clock-0.1"
+    } )
+    public String check;
+
+    private ToLongBiFunction <String, Integer> driver;
+
+    @Setup( Level.Trial )
+    public void load() {
+        driver = Trees.driver( "mp6" );
+    }
+
+    @Benchmark
+    public long engine( SchedulerBenchmark.Counts counts ) {
+        return SchedulerBenchmark.run( driver, check, 0, counts );
+    }
+}
@@ -0,0 +1,59 @@
+// NetworkBenchmark.java
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongBiFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of MP6's neurons and engines
+ *  @version: October 17, 2026
+ *  @see SchedulerBenchmark
+ *  @see EngineCheck
+ *
+ *  The workloads are
+ *  <DL>
+ *  <DT>{@code kick}<DD>waves around a ring of neurons, measuring
+ *      {@code Neuron.fire} and {@code kick}, until n neurons have fired
+ *  <DT>{@code network:e}<DD>read and run a random network of n/100
+ *      neurons made by {@code NetworkGenerator}, on engine e
+ *  </DL>
+ *  and the {@code events} counter is in neuron firings per second.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+public class NetworkBenchmark {
+
+    @Param( { "kick", "network:calendar", "network:heap", "network:compiled" } )
+    public String workload;
+
+    @Param( "1000000" )
+    public int n;
+
+    private ToLongBiFunction <String, Integer> driver;
+
+    @Setup( Level.Trial )
+    public void load() {
+        driver = Trees.driver( "mp6" );
+    }
+
+    @Benchmark
+    public long fire( SchedulerBenchmark.Counts counts ) {
+        return SchedulerBenchmark.run( driver, workload, n, counts );
+    }
+}
@@ -0,0 +1,93 @@
+// SchedulerBenchmark.java
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongBiFunction;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of {@code Simulator.schedule} and {@code run} in every design
+ *  @version: October 17, 2026
+ *  @see Trees
+ *  @see NetworkBenchmark
+ *
+ *  Each design is compiled and loaded by {@link Trees}, and each
+ *  invocation runs one iteration of a workload on it:
+ *  <DL>
+ *  <DT>{@code uniform}<DD>schedule n events at random times, then run
+ *  <DT>{@code hold}<DD>the hold model: 1000 events pending, each
+ *      scheduling the next at an exponentially distributed delay, until
+ *      n have been scheduled
+ *  <DT>{@code ties}<DD>n events at only 10 distinct times
+ *  </DL>
+ *  The primary score is in invocations per second; the {@code events}
+ *  counter is in events triggered per second, which is the number to
+ *  compare between designs, see {@link Compare}.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+public class SchedulerBenchmark {
+
+    @Param( { "mp4", "mp4v2", "mp5", "logic", "mp6" } )
+    public String design;
+
+    @Param( { "uniform", "hold", "ties" } )
+    public String workload;
+
+    @Param( "1000000" )
+    public int n;
+
+    private ToLongBiFunction <String, Integer> driver;
+
+    /** Events or firings counted by a benchmark, reported as a rate
+     */
+    @State( Scope.Thread )
+    @AuxCounters( AuxCounters.Type.OPERATIONS )
+    public static class Counts {
+        public long events;
+
+        @Setup( Level.Iteration )
+        public void clear() {
+            events = 0;
+        }
+    }
+
+    @Setup( Level.Trial )
+    public void load() {
+        driver = Trees.driver( design );
+    }
+
+    @Benchmark
+    public long schedule( Counts counts ) {
+        return run( driver, workload, n, counts );
+    }
+
+    /** Run one iteration of a workload and count what it did
+     *  @throws IllegalStateException if the driver reports a wrong result
+     */
+    static long run( ToLongBiFunction <String, Integer> driver,
+                     String workload, int n, Counts counts ) {
+        long events = driver.applyAsLong( workload, n );
+        if (events < 0) {
+            throw new IllegalStateException( workload + " -- wrong result" );
+        }
+        counts.events = counts.events + events;
+        return events;
+    }
+}
@@ -0,0 +1,129 @@
+// Trees.java
+
+package bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongBiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/** The source trees the benchmarks measure, each with its own driver
+ *  @version: October 17, 2026
+ *  @see SchedulerBenchmark
+ *
+ *  The repository holds three designs of discrete event scheduler: the
+ *  static {@code Simulator} of MP4, MP4v2 and MP5, which schedules
+ *  {@code Action} lambdas; the same design in LogicCircuit; and the MP6
+ *  simulator, which schedules anonymous subclasses of
+ *  {@code Simulator.Event}.  Every tree is in the default package and
+ *  has its own {@code Simulator}, so no two can be on one class path.
+ *  Instead each tree is compiled at benchmark setup, together with a
+ *  {@code SchedulerDriver} from {@code bench/drivers} written for its
+ *  design, into a directory of its own, and loaded in its own class
+ *  loader.  The driver runs one iteration of a workload, see
+ *  {@link SchedulerBenchmark} for the workloads.
+ */
+final class Trees {
+
+    private Trees() {
+    }
+
+    /** Compile a design and load its driver
+     *  @param design mp4, mp4v2, mp5, logic or mp6
+     *  @return the driver, which given a workload and a size runs one
+     *          iteration and returns the number of events or firings, or
+     *          -1 if the result is wrong
+     */
+    @SuppressWarnings( "unchecked" )
+    static ToLongBiFunction <String, Integer> driver( String design ) {
+        String source;
+        String driver = "bench/drivers/lambda";
+        if ("mp4".equals( design )) {
+            source = "MP4/src";
+        } else if ("mp4v2".equals( design )) {
+            source = "MP4v2/src";
+        } else if ("mp5".equals( design )) {
+            source = "MP5/src";
+        } else if ("logic".equals( design )) {
+            source = "LogicCircuit/src";
+        } else if ("mp6".equals( design )) {
+            source = "MP6/src";
+            driver = "bench/drivers/event";
+        } else {
+            throw new IllegalArgumentException( design );
+        }
+        try {
+            Path classes = compile( design, source, driver );
+
+            // the platform loader is the parent, so no tree sees another
+            URLClassLoader loader = new URLClassLoader(
+                new URL[] { classes.toUri().toURL() },
+                ClassLoader.getPlatformClassLoader()
+            );
+            java.lang.reflect.Constructor <?> c =
+                loader.loadClass( "SchedulerDriver" ).getDeclaredConstructor();
+            c.setAccessible( true );
+            return (ToLongBiFunction <String, Integer>)c.newInstance();
+        } catch (IOException e) {
+            throw new UncheckedIOException( e );
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException( "cannot load " + source, e );
+        }
+    }
+
+    /** The top of the repository
+     *  Benchmarks are run from there or from {@code bench}, and forked
+     *  JVMs keep the working directory, so it is the nearest directory
+     *  at or above the working directory that holds {@code bench/drivers}.
+     */
+    private static Path root() {
+        Path dir = Paths.get( "" ).toAbsolutePath();
+        for (Path d = dir; d != null; d = d.getParent()) {
+            if (Files.isDirectory( d.resolve( "bench/drivers" ) )) return d;
+        }
+        throw new IllegalStateException( "not in the repository: " + dir );
+    }
+
+    /** Compile a tree and a driver into a directory of their own
+     *  @return the directory
+     */
+    private static Path compile( String design, String source, String driver )
+        throws IOException {
+        Path root = root();
+        Path out = Files.createTempDirectory( "bench-" + design );
+        List <String> args = new ArrayList <String> ();
+        args.add( "-nowarn" );
+        args.add( "-encoding" );
+        args.add( "UTF-8" );
+        args.add( "-d" );
+        args.add( out.toString() );
+        for (String dir: new String[] { source, driver }) {
+            try (Stream <Path> files = Files.list( root.resolve( dir ) )) {
+                args.addAll(
+                    files.map( Path::toString )
+                         .filter( s -> s.endsWith( ".java" ) )
+                         .sorted()
+                         .collect( Collectors.toList() )
+                );
+            }
+        }
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            throw new IllegalStateException( "no Java compiler; run with a JDK" );
+        }
+        if (javac.run( null, null, null, args.toArray( new String[0] ) ) != 0) {
+            throw new IllegalStateException( "cannot compile " + source );
+        }
+        return out;
+    }
+}